@@ -0,0 +1,149 @@
+/**
+ * AccessExecutor.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared daemon threads that request UI accesses for threads that must not do the access work themselves. When
+ * session lock is free, UI.access runs pending access tasks and push on the calling thread, so producers and the
+ * scheduler thread hand their accesses here and only queue.
+ * <p>
+ * Accesses are coalesced per UI with {@link Channel}: UI has at most one access request waiting or running, tasks
+ * added meanwhile are run by it. A UI whose push blocks holds at most one thread, as further accesses to it find the
+ * session locked and return at once. There is one thread per available processor, so if that many UIs block at the
+ * same time, accesses to other UIs wait. At most {@value #QUEUE_CAPACITY} UIs wait for a thread. When the queue is
+ * full, access is left to pending access queue of the session, run when the session lock is next released, eg. by
+ * the next request of the session.
+ */
+class AccessExecutor {
+
+    static final int QUEUE_CAPACITY = 10000;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        int threads = Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "notify-access-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private AccessExecutor() {
+    }
+
+    /**
+     * Run single task with UI access, not coalesced with other accesses to the UI
+     * @param ui UI accessed
+     * @param task Task run while holding session lock
+     * @throws UIDetachedException If UI is detached
+     */
+    static void access(UI ui, Runnable task) throws UIDetachedException {
+        if(ui.getSession() == null) {
+            throw new UIDetachedException();
+        }
+        new Channel(ui).access(task);
+    }
+
+    /**
+     * Accesses to one UI. Tasks are run in order they were added, all tasks added before the access starts are run
+     * by the same access. Tasks of UI detached before the access are dropped.
+     */
+    static final class Channel {
+        private final UI ui;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean requested = new AtomicBoolean(false);
+
+        Channel(UI ui) {
+            this.ui = ui;
+        }
+
+        /**
+         * Run task with UI access. Returns without blocking, task is run by access thread or by thread holding the
+         * session lock.
+         * @param task Task run while holding session lock
+         */
+        void access(Runnable task) {
+            tasks.offer(task);
+            if(requested.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::requestAccess);
+                } catch (RejectedExecutionException e) {
+                    deferToSession();
+                }
+            }
+        }
+
+        private void requestAccess() {
+            try {
+                ui.access(this::runTasks);
+            } catch (UIDetachedException e) {
+                tasks.clear();
+                requested.set(false);
+            }
+        }
+
+        private void deferToSession() {
+            VaadinSession session = ui.getSession();
+            if(session == null) {
+                tasks.clear();
+                requested.set(false);
+            } else {
+                session.getPendingAccessQueue().add(new VaadinSession.FutureAccess(session,
+                        () -> ui.accessSynchronously(this::runTasks)));
+            }
+        }
+
+        private void runTasks() {
+            // Cleared before running, so tasks added while running request a new access
+            requested.set(false);
+            RuntimeException failure = null;
+            Runnable task;
+            while((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    if(failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            // Reported to UI's error handler after all tasks have run
+            if(failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
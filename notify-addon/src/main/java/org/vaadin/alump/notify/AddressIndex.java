@@ -0,0 +1,122 @@
+/**
+ * AddressIndex.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Notify extensions indexed by address, eg. principal id or topic. Members of an address are kept in copy-on-write
+ * array, so fan-out reads them without locking or allocating. Changes lock only the address changed, and address
+ * without members is removed.
+ */
+class AddressIndex {
+
+    private static final Notify[] EMPTY = new Notify[0];
+
+    /**
+     * Members of one address
+     */
+    private static class Members {
+        private volatile Notify[] members = EMPTY;
+        // Set when removed from index, guarded by this
+        private boolean retired = false;
+    }
+
+    private final ConcurrentHashMap<String, Members> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Add member to address, adding same member again does nothing
+     * @param address Address
+     * @param member Member added
+     */
+    void add(String address, Notify member) {
+        while(true) {
+            Members members = addresses.computeIfAbsent(address, a -> new Members());
+            synchronized (members) {
+                // Lost race with removal of last member, retry with new entry
+                if(members.retired) {
+                    continue;
+                }
+                Notify[] current = members.members;
+                for(Notify existing : current) {
+                    if(existing == member) {
+                        return;
+                    }
+                }
+                Notify[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = member;
+                members.members = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove member from address
+     * @param address Address
+     * @param member Member removed
+     */
+    void remove(String address, Notify member) {
+        Members members = addresses.get(address);
+        if(members == null) {
+            return;
+        }
+        synchronized (members) {
+            Notify[] current = members.members;
+            int index = -1;
+            for(int i = 0; i < current.length; ++i) {
+                if(current[i] == member) {
+                    index = i;
+                    break;
+                }
+            }
+            if(index < 0) {
+                return;
+            }
+            if(current.length == 1) {
+                members.retired = true;
+                members.members = EMPTY;
+                addresses.remove(address, members);
+                return;
+            }
+            Notify[] updated = new Notify[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            members.members = updated;
+        }
+    }
+
+    /**
+     * Get members of address
+     * @param address Address
+     * @return Snapshot of members, must not be modified
+     */
+    Notify[] get(String address) {
+        Members members = addresses.get(address);
+        return members == null ? EMPTY : members.members;
+    }
+
+    /**
+     * Get amount of addresses with members
+     * @return Amount of addresses
+     */
+    int size() {
+        return addresses.size();
+    }
+}
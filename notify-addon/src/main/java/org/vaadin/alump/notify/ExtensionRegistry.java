@@ -0,0 +1,168 @@
+/**
+ * ExtensionRegistry.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.AbstractExtension;
+import com.vaadin.ui.UI;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Constant time lookup of extension by UI. Extensions are registered when attached and removed when detached. UIs and
+ * extensions are held weakly, so UI that is never detached is not leaked. UIs restored from serialized session are not
+ * attached again, their extensions are found from the UI on first lookup and registered then. Lookups do not take
+ * locks.
+ * @param <T> Type of extension
+ */
+class ExtensionRegistry<T extends AbstractExtension> {
+
+    /**
+     * Weak key of registered UI, compared by identity of UI
+     */
+    private static final class WeakKey extends WeakReference<UI> {
+        private final int hash;
+
+        private WeakKey(UI ui, ReferenceQueue<UI> queue) {
+            super(ui, queue);
+            hash = System.identityHashCode(ui);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(other == this) {
+                return true;
+            }
+            UI ui = get();
+            if(ui == null) {
+                return false;
+            } else if(other instanceof WeakKey) {
+                return ((WeakKey) other).get() == ui;
+            } else if(other instanceof LookupKey) {
+                return ((LookupKey) other).ui == ui;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Strong key used for lookups, short lived
+     */
+    private static final class LookupKey {
+        private final UI ui;
+
+        private LookupKey(UI ui) {
+            this.ui = ui;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ui);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof WeakKey ? ((WeakKey) other).get() == ui : other == this;
+        }
+    }
+
+    private final Class<T> type;
+    // Extension refers to its UI, so it is held weakly too
+    private final ConcurrentHashMap<Object, WeakReference<T>> extensions = new ConcurrentHashMap<>();
+    private final ReferenceQueue<UI> collected = new ReferenceQueue<>();
+
+    ExtensionRegistry(Class<T> type) {
+        this.type = type;
+    }
+
+    void register(UI ui, T extension) {
+        if(ui != null) {
+            purge();
+            extensions.put(new WeakKey(ui, collected), new WeakReference<>(extension));
+        }
+    }
+
+    void unregister(UI ui, T extension) {
+        if(ui != null) {
+            LookupKey key = new LookupKey(ui);
+            WeakReference<T> registered = extensions.get(key);
+            if(registered != null && registered.get() == extension) {
+                extensions.remove(key, registered);
+            }
+        }
+    }
+
+    /**
+     * Get extension of UI
+     * @param ui UI
+     * @return Extension or null if UI does not have one
+     */
+    T get(UI ui) {
+        WeakReference<T> registered = extensions.get(new LookupKey(ui));
+        T extension = registered == null ? null : registered.get();
+        if(extension == null) {
+            // UI not yet attached to session, or restored from serialized session without attach
+            extension = scan(ui);
+            if(extension != null && ui.isAttached()) {
+                register(ui, extension);
+            }
+        }
+        return extension;
+    }
+
+    private T scan(UI ui) {
+        return ui.getExtensions().stream().filter(type::isInstance).findFirst().map(type::cast).orElse(null);
+    }
+
+    private void purge() {
+        Reference<? extends UI> key;
+        while((key = collected.poll()) != null) {
+            extensions.remove(key);
+        }
+    }
+
+    /**
+     * Get all registered extensions
+     * @return Snapshot of registered extensions
+     */
+    List<T> values() {
+        purge();
+        List<T> values = new ArrayList<>(extensions.size());
+        for(WeakReference<T> registered : extensions.values()) {
+            T extension = registered.get();
+            if(extension != null) {
+                values.add(extension);
+            }
+        }
+        return values;
+    }
+
+    int size() {
+        purge();
+        return extensions.size();
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * FrozenNotifyItem.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.Resource;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable notification that can be shared by threads and UIs. Wire payload of notification (title, body, timeout
+ * and clickability) is built into a JSON array once when frozen, and the same array is sent to every UI the
+ * notification is shown in. This skips building the payload and its property names per UI, but Vaadin still writes
+ * the array to the response of each UI separately. Create with {@link NotifyItem#freeze()}.
+ */
+public final class FrozenNotifyItem extends NotifyItem {
+
+    private final String title;
+    private final String body;
+    private final Resource icon;
+    private final Resource sound;
+    private final NotifyClickListener clickListener;
+    private final Integer timeoutMs;
+    private final String groupKey;
+    private final String tag;
+    private final boolean renotify;
+    private final String dedupKey;
+    private final NotifyPriority priority;
+    private final long expiresAt;
+    private final List<NotifyItem> aggregatedItems;
+    private final JsonArray payload;
+
+    FrozenNotifyItem(NotifyItem source) {
+        title = source.getTitle();
+        body = source.getBodyOrNull();
+        icon = source.getIconOrNull();
+        sound = source.getSoundOrNull();
+        clickListener = source.getClickListenerOrNull();
+        timeoutMs = source.getTimeoutMsOrNull();
+        groupKey = source.getGroupKeyOrNull();
+        tag = source.getTagOrNull();
+        renotify = source.isRenotify();
+        dedupKey = source.getDedupKeyOrNull();
+        priority = source.getPriority();
+        expiresAt = source.getExpiresAtMillis();
+        List<NotifyItem> items = source.getAggregatedItems();
+        aggregatedItems = items.isEmpty() ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(items));
+        payload = encodePayload(this);
+    }
+
+    /**
+     * Encode wire payload of notification, see {@link EncodedNotification} for layout
+     * @param item Notification encoded
+     * @return Encoded payload
+     */
+    static JsonArray encodePayload(NotifyItem item) {
+        String title = item.getTitle();
+        String body = item.getBodyOrNull();
+        Integer timeoutMs = item.getTimeoutMsOrNull();
+        String tag = item.getTagOrNull();
+        String dedupKey = item.getDedupKeyOrNull();
+        NotifyPriority priority = item.getPriority();
+        JsonArray json = Json.createArray();
+        json.set(EncodedNotification.TITLE, title == null ? Json.createNull() : Json.create(title));
+        json.set(EncodedNotification.BODY, body == null ? Json.createNull() : Json.create(body));
+        json.set(EncodedNotification.TIMEOUT_MS, timeoutMs == null ? Json.createNull() : Json.create(timeoutMs));
+        json.set(EncodedNotification.HAS_CLICK_LISTENER, item.getClickListenerOrNull() != null);
+        // Optional values at the end, array must be filled in order up to the last value set
+        boolean hasPriority = priority != NotifyPriority.NORMAL;
+        boolean hasDedupKey = dedupKey != null || hasPriority;
+        if(tag != null || hasDedupKey) {
+            json.set(EncodedNotification.TAG, tag == null ? Json.createNull() : Json.create(tag));
+            json.set(EncodedNotification.RENOTIFY, item.isRenotify());
+        }
+        if(hasDedupKey) {
+            json.set(EncodedNotification.DEDUP_KEY, dedupKey == null ? Json.createNull() : Json.create(dedupKey));
+        }
+        if(hasPriority) {
+            json.set(EncodedNotification.PRIORITY, priority.ordinal());
+        }
+        return json;
+    }
+
+    /**
+     * Get payload sent to client. Shared by all recipients and must not be modified.
+     * @return Payload array
+     */
+    JsonArray getPayload() {
+        return payload;
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("Frozen notification can not be modified");
+    }
+
+    @Override
+    public NotifyItem setTitle(String title) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setBody(String body) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setIcon(Resource icon) {
+        throw frozen();
+    }
+
+    @Override
+    protected NotifyItem setSound(Resource sound) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setClickListener(NotifyClickListener listener) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setTimeoutMs(Integer milliseconds) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setTimeout(Integer seconds) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setGroupKey(String groupKey) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setTag(String tag) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setRenotify(boolean renotify) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setDedupKey(String dedupKey) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setPriority(NotifyPriority priority) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setExpiresAt(Instant expiresAt) {
+        throw frozen();
+    }
+
+    @Override
+    public NotifyItem setTimeToLiveMs(Integer milliseconds) {
+        throw frozen();
+    }
+
+    @Override
+    void setAggregatedItems(List<NotifyItem> items) {
+        throw frozen();
+    }
+
+    @Override
+    public FrozenNotifyItem freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    public List<NotifyItem> getAggregatedItems() {
+        return aggregatedItems;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public Optional<String> getBody() {
+        return Optional.ofNullable(body);
+    }
+
+    @Override
+    public Optional<Resource> getIcon() {
+        return Optional.ofNullable(icon);
+    }
+
+    @Override
+    public Optional<Resource> getSound() {
+        return Optional.ofNullable(sound);
+    }
+
+    @Override
+    public Optional<NotifyClickListener> getClickListener() {
+        return Optional.ofNullable(clickListener);
+    }
+
+    @Override
+    public Optional<Integer> getTimeoutMs() {
+        return Optional.ofNullable(timeoutMs);
+    }
+
+    @Override
+    public Optional<String> getGroupKey() {
+        return Optional.ofNullable(groupKey);
+    }
+
+    @Override
+    public Optional<String> getTag() {
+        return Optional.ofNullable(tag);
+    }
+
+    @Override
+    public boolean isRenotify() {
+        return renotify;
+    }
+
+    @Override
+    public Optional<String> getDedupKey() {
+        return Optional.ofNullable(dedupKey);
+    }
+
+    @Override
+    public NotifyPriority getPriority() {
+        return priority;
+    }
+
+    @Override
+    String getBodyOrNull() {
+        return body;
+    }
+
+    @Override
+    Resource getIconOrNull() {
+        return icon;
+    }
+
+    @Override
+    Resource getSoundOrNull() {
+        return sound;
+    }
+
+    @Override
+    NotifyClickListener getClickListenerOrNull() {
+        return clickListener;
+    }
+
+    @Override
+    Integer getTimeoutMsOrNull() {
+        return timeoutMs;
+    }
+
+    @Override
+    String getGroupKeyOrNull() {
+        return groupKey;
+    }
+
+    @Override
+    String getTagOrNull() {
+        return tag;
+    }
+
+    @Override
+    String getDedupKeyOrNull() {
+        return dedupKey;
+    }
+
+    @Override
+    long getExpiresAtMillis() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * NotificationAggregator.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregation stage of one UI. Collects notifications with group key into open groups, and passes a group forward
+ * when its window closes. Not thread safe, used while holding the session lock.
+ */
+class NotificationAggregator implements Serializable {
+
+    /**
+     * Receives notifications passed forward by aggregator
+     */
+    interface Sink extends Serializable {
+        void accept(NotifyItem notification, long showNanos);
+    }
+
+    /**
+     * Runs window timers. Task has to be run while holding the session lock.
+     */
+    interface Timer extends Serializable {
+        NotifyScheduler.Handle schedule(Runnable task, long delayMs);
+    }
+
+    private final Sink sink;
+    private final Timer timer;
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private NotifyAggregation aggregation;
+
+    NotificationAggregator(Sink sink, Timer timer) {
+        this.sink = sink;
+        this.timer = timer;
+    }
+
+    private class Group implements Serializable {
+        private final String key;
+        private final List<NotifyItem> items = new ArrayList<>();
+        private final long showNanos;
+        private transient NotifyScheduler.Handle windowTimer;
+
+        private Group(String key, long showNanos) {
+            this.key = key;
+            this.showNanos = showNanos;
+        }
+    }
+
+    /**
+     * Define aggregation. Groups already open are passed forward.
+     * @param aggregation Aggregation, null to disable
+     */
+    void setAggregation(NotifyAggregation aggregation) {
+        flushAll();
+        this.aggregation = aggregation;
+    }
+
+    NotifyAggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Offer notification to aggregation
+     * @param notification Notification shown
+     * @param showNanos Time of show call
+     * @return true if notification was collected to group, false if it should be shown as is
+     */
+    boolean offer(NotifyItem notification, long showNanos) {
+        String key = notification.getGroupKeyOrNull();
+        if(aggregation == null || key == null) {
+            return false;
+        }
+        Group group = groups.get(key);
+        if(group == null) {
+            group = new Group(key, showNanos);
+            groups.put(key, group);
+            if(aggregation.getMaxItems() > 1) {
+                Group opened = group;
+                group.windowTimer = timer.schedule(() -> onWindowClosed(opened), aggregation.getWindowMs());
+            }
+        }
+        group.items.add(notification);
+        if(group.items.size() >= aggregation.getMaxItems()) {
+            flush(group);
+        }
+        return true;
+    }
+
+    private void onWindowClosed(Group group) {
+        // Group may have been already flushed by reaching maximum amount
+        if(groups.get(group.key) == group) {
+            flush(group);
+        }
+    }
+
+    private void flush(Group group) {
+        groups.remove(group.key);
+        if(group.windowTimer != null) {
+            group.windowTimer.cancel();
+        }
+        List<NotifyItem> items = removeExpired(group);
+        if(items.isEmpty()) {
+            return;
+        } else if(items.size() == 1) {
+            sink.accept(items.get(0), group.showNanos);
+            return;
+        }
+        NotifyItem summary = aggregation.getCombiner().combine(group.key, items);
+        // Combiner may return the same frozen summary for every group, so it is completed as a copy and frozen again
+        boolean frozen = summary.isFrozen();
+        if(frozen) {
+            summary = summary.copy();
+        }
+        summary.setAggregatedItems(items);
+        if(summary.getClickListenerOrNull() == null && hasClickListener(items)) {
+            summary.setClickListener(NotificationAggregator::forwardClick);
+        }
+        if(summary.getExpiresAtMillis() == 0L) {
+            summary.setExpiresAt(getLatestExpiry(items));
+        }
+        if(frozen) {
+            summary = summary.freeze();
+        }
+        sink.accept(summary, group.showNanos);
+    }
+
+    /**
+     * Take expired notifications out of group. They are not combined, but passed forward as is, so sink discards and
+     * counts them.
+     * @param group Group flushed
+     * @return Notifications of group that have not expired
+     */
+    private List<NotifyItem> removeExpired(Group group) {
+        long now = System.currentTimeMillis();
+        List<NotifyItem> live = new ArrayList<>(group.items.size());
+        for(NotifyItem item : group.items) {
+            if(item.isExpired(now)) {
+                sink.accept(item, group.showNanos);
+            } else {
+                live.add(item);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Get expiry of summary, it expires only when all its notifications have expired
+     * @param items Notifications combined
+     * @return Latest expiry, null if any of notifications does not expire
+     */
+    private static Instant getLatestExpiry(List<NotifyItem> items) {
+        long latest = 0L;
+        for(NotifyItem item : items) {
+            long expiresAt = item.getExpiresAtMillis();
+            if(expiresAt == 0L) {
+                return null;
+            }
+            latest = Math.max(latest, expiresAt);
+        }
+        return Instant.ofEpochMilli(latest);
+    }
+
+    private static boolean hasClickListener(List<NotifyItem> items) {
+        for(NotifyItem item : items) {
+            if(item.getClickListenerOrNull() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void forwardClick(NotifyClickEvent event) {
+        for(NotifyItem item : event.getAggregatedItems()) {
+            NotifyClickListener listener = item.getClickListenerOrNull();
+            if(listener != null) {
+                listener.onNotificationClick(new NotifyClickEvent(item));
+            }
+        }
+    }
+
+    /**
+     * Pass all open groups forward
+     */
+    void flushAll() {
+        while(!groups.isEmpty()) {
+            flush(groups.values().iterator().next());
+        }
+    }
+
+    /**
+     * Drop all open groups
+     */
+    void clear() {
+        groups.values().forEach(group -> {
+            if(group.windowTimer != null) {
+                group.windowTimer.cancel();
+            }
+        });
+        groups.clear();
+    }
+
+    int getOpenGroupCount() {
+        return groups.size();
+    }
+}
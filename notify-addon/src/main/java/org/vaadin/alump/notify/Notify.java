@@ -21,56 +21,182 @@ package org.vaadin.alump.notify;
 import com.vaadin.server.AbstractExtension;
 
 import com.vaadin.server.Resource;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import elemental.json.Json;
+import elemental.json.JsonArray;
 import org.vaadin.alump.notify.client.share.*;
 import org.vaadin.alump.notify.exceptions.NotificationAPINotSupportedException;
 import org.vaadin.alump.notify.exceptions.NotificationsDeniedByUserException;
 import org.vaadin.alump.notify.exceptions.NotifyRuntimeException;
 import org.vaadin.alump.notify.exceptions.NotifyUINotResolvedException;
+import org.vaadin.alump.notify.metrics.NotifyMetrics;
+import org.vaadin.alump.notify.tracing.NotifySpan;
+import org.vaadin.alump.notify.tracing.NotifyTracing;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Notify addon adds easy server side Java API to access Notification API on browser
  */
 public class Notify extends AbstractExtension {
 
-    private NotifyState clientState = NotifyState.UNINITIALIZED;
+    private static final ExtensionRegistry<Notify> registry = new ExtensionRegistry<>(Notify.class);
+    private static final AddressIndex principals = new AddressIndex();
+    private static final AddressIndex topics = new AddressIndex();
+
+    private static volatile NotifyMetrics metrics = NotifyMetrics.NOOP;
+    private static volatile TokenBucket globalRateLimit;
+
+    private static final String SESSION_RATE_LIMIT = Notify.class.getName() + ".sessionRateLimit";
+
+    private volatile NotifyState clientState = NotifyState.UNINITIALIZED;
     private AtomicInteger notificationCounter = new AtomicInteger(0);
     private final List<NotifyStateListener> stateListeners;
-    private final Map<Integer,NotifyItem> pendingNotifications = new HashMap<>();
+    private final PendingNotifications pendingNotifications = new PendingNotifications(this::onPendingEvicted);
+    private final List<SharedNotification> outgoingNotifications = new ArrayList<>();
+    // Notifications shown from other threads, drained by single scheduled UI access
+    private final NotifyOutbox<QueuedNotification> outbox = new NotifyOutbox<>(NotifyPriority.values().length,
+            DEFAULT_OUTBOX_CAPACITY, OutboxPolicy.DROP_OLDEST);
+    private final AtomicBoolean outboxDrainScheduled = new AtomicBoolean(false);
+    // Coalesces accesses requested from other threads, see getAccessChannel
+    private transient AccessExecutor.Channel accessChannel;
+    // Registered icons by resource key in least recently used order
+    private final LinkedHashMap<String,RegisteredIcon> registeredIcons = new LinkedHashMap<>(16, 0.75f, true);
+    // Icon resources seen, mapped to their registration so repeated icons skip content key resolving
+    private final Map<Resource,RegisteredIcon> iconsByResource = new HashMap<>();
+    private int flushCycle = 0;
+    // Latency spans of traced notifications in flight, empty unless tracing is enabled
+    private final Map<Integer, NotifySpan.Builder> spans = new HashMap<>();
+    private TokenBucket rateLimit;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    // Notifications over rate limit waiting to be shown, in order
+    private final Queue<QueuedNotification> throttled = new ArrayDeque<>();
+    private boolean throttledReleaseScheduled = false;
+    // Cancelled on detach, so timer does not keep detached UI alive
+    private transient NotifyScheduler.Handle throttledRelease;
+    private final TaggedNotifications taggedNotifications = new TaggedNotifications();
+    private final NotificationAggregator aggregator = new NotificationAggregator(this::deliverAggregated,
+            this::scheduleAccess);
+    // Addresses of this extension, in address indexes while attached. Changes are guarded by subscribedTopics.
+    private String principal;
+    private final Set<String> subscribedTopics = new HashSet<>();
+    // Not serialized, extension of restored session is indexed again when its session is first accessed
+    private transient boolean indexed = false;
+
+    private static final int MAX_REGISTERED_ICONS = 32;
+    private static final int MAX_ICON_RESOURCES = 4 * MAX_REGISTERED_ICONS;
+    private static final int MAX_THROTTLED = 1000;
+
+    // Outgoing notifications of higher priority are sent first
+    private static final Comparator<SharedNotification> OUTGOING_ORDER =
+            (a, b) -> b.priority.ordinal() - a.priority.ordinal();
+
+    /** Default maximum amount of notifications queued from other threads for one UI */
+    public static final int DEFAULT_OUTBOX_CAPACITY = 1000;
 
     private final NotifyServerRpc serverRpc = new NotifyServerRpc() {
 
         @Override
         public void onClientStateUpdate(NotifyState newState) {
-            NotifyState oldState = newState;
+            NotifyState oldState = Notify.this.clientState;
             Notify.this.clientState = newState;
             NotifyStateEvent event = new NotifyStateEvent(Notify.this.getUI(), oldState, newState);
             stateListeners.forEach(l -> l.onNotifyStateChange(event));
         }
 
         @Override
-        public void onNotificationHandled(int id) {
-            Notify.this.setResource(getIconResourceKey(id), null);
-            Notify.this.setResource(getSoundResourceKey(id), null);
-            pendingNotifications.remove(id);
+        public void onAcknowledgements(int[] ids, int[] outcomes) {
+            int count = Math.min(ids.length, outcomes.length);
+            for(int i = 0; i < count; ++i) {
+                switch(outcomes[i]) {
+                    case Acknowledgement.CLICKED:
+                        notificationClicked(ids[i]);
+                        break;
+                    case Acknowledgement.TIMED_OUT:
+                        notificationHandled(ids[i], NotifyMetrics.HandledReason.TIMED_OUT);
+                        break;
+                    case Acknowledgement.ERROR:
+                        notificationHandled(ids[i], NotifyMetrics.HandledReason.ERROR);
+                        break;
+                    case Acknowledgement.DROPPED:
+                        notificationDropped(ids[i], NotifyMetrics.DropReason.DISPLAY_QUEUE_FULL);
+                        break;
+                    case Acknowledgement.COALESCED:
+                        notificationDropped(ids[i], NotifyMetrics.DropReason.DISPLAY_COALESCED);
+                        break;
+                    case Acknowledgement.EXPIRED:
+                        notificationDropped(ids[i], NotifyMetrics.DropReason.EXPIRED);
+                        break;
+                    default:
+                        notificationHandled(ids[i], NotifyMetrics.HandledReason.CLOSED);
+                }
+            }
+            pendingNotifications.evictExpired();
         }
 
         @Override
-        public void onNotificationClicked(int id) {
-            NotifyItem notification = pendingNotifications.get(id);
-            if(notification == null) {
-                return;
+        public void onNotificationDisplayed(int id, double displayedAt, int queueMs) {
+            NotifySpan.Builder span = spans.get(id);
+            if(span != null) {
+                NotifyTracing.recordDisplayed(span, (long) displayedAt, queueMs);
+            }
+        }
+
+        @Override
+        public void onTracedNotificationClicked(int id, double clickedAt) {
+            NotifySpan.Builder span = spans.get(id);
+            if(span != null) {
+                span.clickReceived(System.nanoTime(), System.currentTimeMillis(), (long) clickedAt);
+            }
+            notificationClicked(id);
+            if(span != null) {
+                NotifyTracing.recordClicked(span, (long) clickedAt);
             }
-            final NotifyClickEvent event = new NotifyClickEvent(notification);
-            notification.getClickListener().ifPresent(l -> l.onNotificationClick(event));
         }
     };
 
+    private void notificationHandled(int id, NotifyMetrics.HandledReason reason) {
+        NotifyItem notification = pendingNotifications.remove(id);
+        if(notification != null) {
+            releaseResources(id, notification);
+            metrics.notificationHandled(reason);
+            metrics.pendingChanged(-1);
+        }
+        finishSpan(id, NotifySpan.Outcome.HANDLED);
+    }
+
+    private void notificationDropped(int id, NotifyMetrics.DropReason reason) {
+        NotifyItem notification = pendingNotifications.remove(id);
+        if(notification != null) {
+            releaseResources(id, notification);
+            metrics.notificationDropped(reason);
+            metrics.pendingChanged(-1);
+        }
+        finishSpan(id, NotifySpan.Outcome.HANDLED);
+    }
+
+    private void notificationClicked(int id) {
+        NotifyItem notification = pendingNotifications.get(id);
+        if(notification == null) {
+            return;
+        }
+        metrics.notificationClicked();
+        final NotifyClickEvent event = new NotifyClickEvent(notification);
+        notification.getClickListener().ifPresent(l -> l.onNotificationClick(event));
+    }
+
     protected Notify() {
-        stateListeners = new ArrayList<>();
+        stateListeners = new CopyOnWriteArrayList<>();
         registerRpc(serverRpc, NotifyServerRpc.class);
     }
 
@@ -79,6 +205,103 @@ public class Notify extends AbstractExtension {
         extend(ui);
     }
 
+    @Override
+    public void attach() {
+        super.attach();
+        registry.register(getUI(), this);
+        index();
+    }
+
+    private void index() {
+        synchronized (subscribedTopics) {
+            if(indexed) {
+                return;
+            }
+            indexed = true;
+            if(principal != null) {
+                principals.add(principal, this);
+            }
+            subscribedTopics.forEach(topic -> topics.add(topic, this));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Attach is not called for UIs of restored session. Validation runs once the whole session is restored.
+        in.registerValidation(this::indexOnFirstAccess, 0);
+    }
+
+    /**
+     * Index extension of restored session when the session is first accessed on this node. Session replicas that are
+     * never used on this node are not kept by the static indexes.
+     */
+    private void indexOnFirstAccess() {
+        VaadinSession session = getSession();
+        if(session != null) {
+            session.getPendingAccessQueue().add(new VaadinSession.FutureAccess(session, () -> {
+                // Not indexed if detached before first access
+                if(getSession() != null) {
+                    index();
+                }
+            }));
+        }
+    }
+
+    @Override
+    public void detach() {
+        registry.unregister(getUI(), this);
+        // Also called for UIs of destroyed sessions
+        synchronized (subscribedTopics) {
+            indexed = false;
+            if(principal != null) {
+                principals.remove(principal, this);
+            }
+            subscribedTopics.forEach(topic -> topics.remove(topic, this));
+        }
+        pendingNotifications.clear();
+        outbox.clear();
+        // Drain of UI detached before its access ran is never run
+        outboxDrainScheduled.set(false);
+        registeredIcons.clear();
+        iconsByResource.clear();
+        spans.values().forEach(span -> NotifyTracing.finish(span, NotifySpan.Outcome.EVICTED));
+        spans.clear();
+        throttled.clear();
+        if(throttledRelease != null) {
+            throttledRelease.cancel();
+            throttledRelease = null;
+        }
+        throttledReleaseScheduled = false;
+        aggregator.clear();
+        taggedNotifications.clear();
+        super.detach();
+    }
+
+    private void onPendingEvicted(int notificationNumber, NotifyItem notification) {
+        releaseResources(notificationNumber, notification);
+        metrics.notificationEvicted();
+        metrics.pendingChanged(-1);
+        finishSpan(notificationNumber, NotifySpan.Outcome.EVICTED);
+    }
+
+    private void finishSpan(int notificationNumber, NotifySpan.Outcome outcome) {
+        if(spans.isEmpty()) {
+            return;
+        }
+        NotifySpan.Builder span = spans.remove(notificationNumber);
+        if(span != null) {
+            NotifyTracing.finish(span, outcome);
+        }
+    }
+
+    private void releaseResources(int notificationNumber, NotifyItem notification) {
+        taggedNotifications.remove(notificationNumber, notification);
+        // Icons are shared by notifications and released only when evicted from registered icons
+        if(notification.getSoundOrNull() != null) {
+            setResource(getSoundResourceKey(notificationNumber), null);
+        }
+    }
+
     @Override
     protected NotifySharedState getState() {
         return (NotifySharedState) super.getState();
@@ -89,19 +312,32 @@ public class Notify extends AbstractExtension {
     }
 
     protected static Notify getInstance(UI ui) {
-        return getInstanceOptional(ui).orElseGet(() -> new Notify(ui));
+        Notify instance = registry.get(ui);
+        return instance != null ? instance : new Notify(ui);
     }
 
     protected static Optional<Notify> getInstanceOptional(UI ui) {
-        return ui.getExtensions().stream().filter(e -> e instanceof Notify).findFirst().map(e -> (Notify)e);
+        return Optional.ofNullable(registry.get(ui));
+    }
+
+    /**
+     * Get Notify extensions of all UIs attached to sessions
+     * @return Snapshot of extensions
+     */
+    static List<Notify> getLiveInstances() {
+        return registry.values();
+    }
+
+    static int getLiveInstanceCount() {
+        return registry.size();
     }
 
     protected void instanceAskPermission() {
         getRpcProxy(NotifyClientRpc.class).askPermission();
     }
 
-    protected String getIconResourceKey(int notificationNumber) {
-        return "icon-" + notificationNumber;
+    protected String getIconResourceKey(String contentKey) {
+        return "icon-" + contentKey;
     }
 
     protected String getSoundResourceKey(int notificationNumber) {
@@ -109,38 +345,449 @@ public class Notify extends AbstractExtension {
     }
 
     protected String getIconResourceKey(int notificationNumber, NotifyItem notification) {
-        return notification.getIcon().map(resource -> {
-            String resourceKey = getIconResourceKey(notificationNumber);
-            setResource(resourceKey, resource);
-            return resourceKey;
-        }).orElse(null);
+        Resource icon = notification.getIconOrNull();
+        return icon == null ? null : registerIcon(icon);
+    }
+
+    /**
+     * Icon registered to this extension
+     */
+    private static class RegisteredIcon implements Serializable {
+        private final String contentKey;
+        private final String resourceKey;
+        private final boolean sessionServed;
+        private int lastUsedCycle;
+
+        private RegisteredIcon(String contentKey, String resourceKey, boolean sessionServed) {
+            this.contentKey = contentKey;
+            this.resourceKey = resourceKey;
+            this.sessionServed = sessionServed;
+        }
+    }
+
+    /**
+     * Register icon under content addressed key. Same icon will always get same key and URL, so browser can cache it
+     * and amount of registered resources does not grow with notifications. Icons used again are resolved without
+     * allocating.
+     * @param icon Icon resource
+     * @return Resource key of icon
+     */
+    private String registerIcon(Resource icon) {
+        VaadinSession session = getSession();
+        if(session == null) {
+            throw new NotifyUINotResolvedException();
+        }
+        NotifyIconRegistry registry = NotifyIconRegistry.get(session);
+
+        RegisteredIcon registration = iconsByResource.get(icon);
+        // Lookup also moves icon to the end of least recently used order
+        if(registration == null || registeredIcons.get(registration.resourceKey) != registration) {
+            registration = registerNewIcon(registry, icon);
+        } else if(registration.sessionServed) {
+            // Keep it alive in session registry
+            registry.touch(registration.contentKey);
+        }
+        registration.lastUsedCycle = flushCycle;
+        return registration.resourceKey;
+    }
+
+    private RegisteredIcon registerNewIcon(NotifyIconRegistry registry, Resource icon) {
+        String contentKey = registry.getKey(icon);
+        Resource registered = registry.register(contentKey, icon);
+        String resourceKey = getIconResourceKey(contentKey);
+        RegisteredIcon registration = registeredIcons.get(resourceKey);
+        if(registration == null) {
+            registration = new RegisteredIcon(contentKey, resourceKey, registered != icon);
+            registration.lastUsedCycle = flushCycle;
+            registeredIcons.put(resourceKey, registration);
+            setResource(resourceKey, registered);
+            evictRegisteredIcons();
+        }
+        if(iconsByResource.size() >= MAX_ICON_RESOURCES) {
+            iconsByResource.clear();
+        }
+        iconsByResource.put(icon, registration);
+        return registration;
+    }
+
+    private void evictRegisteredIcons() {
+        Iterator<RegisteredIcon> iterator = registeredIcons.values().iterator();
+        while(registeredIcons.size() > MAX_REGISTERED_ICONS && iterator.hasNext()) {
+            RegisteredIcon eldest = iterator.next();
+            // Icons used by notifications not yet sent must stay registered
+            if(eldest.lastUsedCycle == flushCycle) {
+                break;
+            }
+            iterator.remove();
+            setResource(eldest.resourceKey, null);
+        }
     }
 
     protected String getSoundResourceKey(int notificationNumber, NotifyItem notification) {
-        return notification.getSound().map(resource -> {
-            String resourceKey = getSoundResourceKey(notificationNumber);
-            setResource(resourceKey, resource);
-            return resourceKey;
-        }).orElse(null);
+        Resource sound = notification.getSoundOrNull();
+        if(sound == null) {
+            return null;
+        }
+        String resourceKey = getSoundResourceKey(notificationNumber);
+        setResource(resourceKey, sound);
+        return resourceKey;
     }
 
     protected SharedNotification generateSharedNotification(NotifyItem item) {
         int notificationNumber = notificationCounter.incrementAndGet();
 
-        SharedNotification shared = new SharedNotification(notificationNumber);
-        shared.title = item.getTitle();
-        shared.body = item.getBody().orElse(null);
+        SharedNotification shared;
+        long expiresAt = item.getExpiresAtMillis();
+        if(item instanceof FrozenNotifyItem || expiresAt != 0L) {
+            // Notifications that expire are sent encoded too, so time to live is carried only by the envelope
+            JsonArray payload = item instanceof FrozenNotifyItem ? ((FrozenNotifyItem) item).getPayload()
+                    : FrozenNotifyItem.encodePayload(item);
+            EncodedSharedNotification encoded = new EncodedSharedNotification(notificationNumber, payload);
+            if(expiresAt != 0L) {
+                // Sent as remaining time, so clock of browser does not need to match server
+                long ttlMs = expiresAt - System.currentTimeMillis();
+                encoded.ttlMs = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, ttlMs));
+            }
+            shared = encoded;
+        } else {
+            shared = new SharedNotification(notificationNumber);
+            shared.title = item.getTitle();
+            shared.body = item.getBodyOrNull();
+            shared.hasClickListener = item.getClickListenerOrNull() != null;
+            shared.timeoutMs = item.getTimeoutMsOrNull();
+            shared.tag = item.getTagOrNull();
+            shared.renotify = item.isRenotify();
+            shared.dedupKey = item.getDedupKeyOrNull();
+        }
+        // Encoded notifications carry priority in payload, it is only used to order outgoing notifications
+        shared.priority = item.getPriority();
         shared.iconRes = getIconResourceKey(notificationNumber, item);
-        shared.hasClickListener = item.getClickListener().isPresent();
-        shared.timeoutMs = item.getTimeoutMs().orElse(null);
 
         return shared;
     }
 
+    /**
+     * Notification sent encoded. Payload of frozen item is shared by all recipients.
+     */
+    private static class EncodedSharedNotification extends SharedNotification {
+        private final JsonArray payload;
+        // Remaining time to live in milliseconds, 0 if notification does not expire
+        private int ttlMs = 0;
+
+        private EncodedSharedNotification(int id, JsonArray payload) {
+            super(id);
+            this.payload = payload;
+        }
+
+        private JsonArray encode() {
+            JsonArray encoded = Json.createArray();
+            encoded.set(EncodedNotification.ID, id);
+            encoded.set(EncodedNotification.ICON_RES, iconRes == null ? Json.createNull() : Json.create(iconRes));
+            encoded.set(EncodedNotification.PAYLOAD, payload);
+            if(traceId != null || ttlMs != 0) {
+                encoded.set(EncodedNotification.TRACE_ID, traceId == null ? Json.createNull() : Json.create(traceId));
+                encoded.set(EncodedNotification.SHOWN_AT, shownAt);
+            }
+            if(ttlMs != 0) {
+                encoded.set(EncodedNotification.TTL_MS, ttlMs);
+            }
+            return encoded;
+        }
+    }
+
     protected void instanceShow(NotifyItem notification) {
+        instanceShow(notification, System.nanoTime());
+    }
+
+    private void instanceShow(NotifyItem notification, long showNanos) {
+        String tag = notification.getTagOrNull();
+        if(tag != null && updateTagged(tag, notification)) {
+            return;
+        }
         SharedNotification shared = generateSharedNotification(notification);
+        if(tag != null) {
+            taggedNotifications.add(tag, shared.id, notification, shared.iconRes);
+        }
+        if(NotifyTracing.isEnabled()) {
+            startSpan(shared, showNanos);
+        }
         pendingNotifications.put(shared.id, notification);
-        getRpcProxy(NotifyClientRpc.class).showNotification(shared);
+        outgoingNotifications.add(shared);
+        // Notifications are sent in beforeClientResponse, so all shown during one cycle go with a single invocation
+        markAsDirty();
+
+        NotifyMetrics m = metrics;
+        m.pendingChanged(1);
+        m.notificationShown(notification.getPriority(), System.nanoTime() - showNanos);
+        if(clientState == NotifyState.UNINITIALIZED || clientState == NotifyState.PERMISSION_ASKED) {
+            m.notificationQueuedOnClient();
+        }
+    }
+
+    /**
+     * Replace live notification with same tag in place
+     * @param tag Tag of notification
+     * @param notification New notification
+     * @return true if replaced, false if there is no live notification with the tag
+     */
+    private boolean updateTagged(String tag, NotifyItem notification) {
+        TaggedNotifications.Entry entry = taggedNotifications.get(tag);
+        if(entry == null || !pendingNotifications.replace(entry.getId(), notification)) {
+            return false;
+        }
+        taggedNotifications.update(entry, notification, getIconResourceKey(entry.getId(), notification));
+        // Changed values are sent in beforeClientResponse, several updates during one cycle are sent as one
+        markAsDirty();
+        return true;
+    }
+
+    private void startSpan(SharedNotification shared, long showNanos) {
+        // Epoch time of show call, derived so that time spent in ingress queue is included
+        long shownAt = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - showNanos);
+        NotifySpan.Builder span = new NotifySpan.Builder(NotifyTracing.nextTraceId(), getUI().getUIId(), shared.id,
+                shownAt, showNanos);
+        shared.traceId = span.getTraceId();
+        shared.shownAt = shownAt;
+        spans.put(shared.id, span);
+    }
+
+    @Override
+    public void beforeClientResponse(boolean initial) {
+        super.beforeClientResponse(initial);
+        flushOutgoingNotifications();
+    }
+
+    private void flushOutgoingNotifications() {
+        if(outgoingNotifications.isEmpty() && !taggedNotifications.hasUpdates()) {
+            return;
+        }
+        NotifyClientRpc rpc = getRpcProxy(NotifyClientRpc.class);
+        if(!outgoingNotifications.isEmpty()) {
+            sendOutgoingNotifications(rpc);
+        }
+        if(taggedNotifications.hasUpdates()) {
+            JsonArray updates = taggedNotifications.encodeUpdates();
+            if(updates.length() > 0) {
+                rpc.updateNotifications(updates);
+            }
+        }
+        ++flushCycle;
+    }
+
+    private boolean hasMixedPriorities() {
+        for(int i = 1; i < outgoingNotifications.size(); ++i) {
+            if(outgoingNotifications.get(i).priority != outgoingNotifications.get(0).priority) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendOutgoingNotifications(NotifyClientRpc rpc) {
+        if(!spans.isEmpty()) {
+            long now = System.nanoTime();
+            for(SharedNotification shared : outgoingNotifications) {
+                NotifySpan.Builder span = spans.get(shared.id);
+                if(span != null) {
+                    span.sent(now);
+                }
+            }
+        }
+        if(hasMixedPriorities()) {
+            // Stable, so notifications of same priority keep their order
+            outgoingNotifications.sort(OUTGOING_ORDER);
+        }
+        int size = outgoingNotifications.size();
+        // Consecutive encoded and regular notifications are sent as separate invocations, keeping the order
+        for(int start = 0, end; start < size; start = end) {
+            boolean isEncoded = outgoingNotifications.get(start) instanceof EncodedSharedNotification;
+            end = start + 1;
+            while(end < size && (outgoingNotifications.get(end) instanceof EncodedSharedNotification) == isEncoded) {
+                ++end;
+            }
+            if(isEncoded) {
+                JsonArray encoded = Json.createArray();
+                for(int i = start; i < end; ++i) {
+                    encoded.set(i - start, ((EncodedSharedNotification) outgoingNotifications.get(i)).encode());
+                }
+                rpc.showEncodedNotifications(encoded);
+            } else if(end - start == 1) {
+                rpc.showNotification(outgoingNotifications.get(start));
+            } else {
+                rpc.showNotifications(new ArrayList<>(outgoingNotifications.subList(start, end)));
+            }
+        }
+        outgoingNotifications.clear();
+    }
+
+    private boolean dropIfBlocked() {
+        if(clientState == NotifyState.PERMISSION_DENIED) {
+            metrics.notificationDropped(NotifyMetrics.DropReason.PERMISSION_DENIED);
+            return true;
+        } else if(clientState == NotifyState.NOT_SUPPORTED) {
+            metrics.notificationDropped(NotifyMetrics.DropReason.NOT_SUPPORTED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pass notification through aggregation and rate limits
+     * @param item Notification shown
+     * @param showNanos Time of show call
+     * @return true if notification was shown, aggregated or queued, false if dropped
+     */
+    private boolean deliver(NotifyItem item, long showNanos) {
+        if(dropIfExpired(item)) {
+            return false;
+        }
+        if(aggregator.offer(item, showNanos)) {
+            return true;
+        }
+        return deliverRateLimited(item, showNanos);
+    }
+
+    private void deliverAggregated(NotifyItem item, long showNanos) {
+        // Client state may have changed during aggregation window
+        if(!dropIfExpired(item) && !dropIfBlocked()) {
+            deliverRateLimited(item, showNanos);
+        }
+    }
+
+    /**
+     * Drop notification that has expired, before anything is done for it
+     * @param item Notification
+     * @return true if notification expired and was dropped
+     */
+    private boolean dropIfExpired(NotifyItem item) {
+        if(item.isExpired(System.currentTimeMillis())) {
+            metrics.notificationDropped(NotifyMetrics.DropReason.EXPIRED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Show notification if rate limits allow it, otherwise handle it by overflow policy
+     * @param item Notification shown
+     * @param showNanos Time of show call
+     * @return true if notification was shown or queued, false if dropped
+     */
+    private boolean deliverRateLimited(NotifyItem item, long showNanos) {
+        if(item.getPriority() == NotifyPriority.URGENT) {
+            // Urgent notifications do not wait behind rate limited traffic
+            instanceShow(item, showNanos);
+            return true;
+        }
+        // Notifications already waiting go first
+        if(throttled.isEmpty()) {
+            long waitNanos = acquirePermit(System.nanoTime());
+            if(waitNanos == 0L) {
+                instanceShow(item, showNanos);
+                return true;
+            }
+            return throttle(item, showNanos, waitNanos);
+        }
+        return throttle(item, showNanos, 0L);
+    }
+
+    /**
+     * Take token from all rate limits in use
+     * @param nowNanos Current System.nanoTime
+     * @return 0 if notification can be shown, otherwise nanoseconds until it can
+     */
+    private long acquirePermit(long nowNanos) {
+        TokenBucket ui = rateLimit;
+        TokenBucket session = getSessionRateLimit(getSession());
+        TokenBucket global = globalRateLimit;
+        if(ui == null && session == null && global == null) {
+            return 0L;
+        }
+        long waitNanos = ui == null ? 0L : ui.tryAcquire(nowNanos);
+        if(waitNanos > 0) {
+            return waitNanos;
+        }
+        waitNanos = session == null ? 0L : session.tryAcquire(nowNanos);
+        if(waitNanos > 0) {
+            release(ui);
+            return waitNanos;
+        }
+        waitNanos = global == null ? 0L : global.tryAcquire(nowNanos);
+        if(waitNanos > 0) {
+            release(session);
+            release(ui);
+        }
+        return waitNanos;
+    }
+
+    private static void release(TokenBucket bucket) {
+        if(bucket != null) {
+            bucket.release();
+        }
+    }
+
+    private boolean throttle(NotifyItem item, long showNanos, long waitNanos) {
+        NotifyMetrics m = metrics;
+        if(overflowPolicy == OverflowPolicy.DROP) {
+            m.notificationDropped(NotifyMetrics.DropReason.RATE_LIMITED);
+            return false;
+        } else if(overflowPolicy == OverflowPolicy.COLLAPSE && !throttled.isEmpty()) {
+            throttled.clear();
+            m.notificationDropped(NotifyMetrics.DropReason.COLLAPSED);
+        } else if(throttled.size() >= MAX_THROTTLED) {
+            m.notificationDropped(NotifyMetrics.DropReason.RATE_LIMITED);
+            return false;
+        }
+        throttled.add(new QueuedNotification(item, showNanos, true));
+        m.notificationDelayed();
+        scheduleThrottledRelease(waitNanos);
+        return true;
+    }
+
+    private void scheduleThrottledRelease(long waitNanos) {
+        if(throttledReleaseScheduled) {
+            return;
+        }
+        throttledReleaseScheduled = true;
+        throttledRelease = scheduleAccess(this::releaseThrottled, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    /**
+     * Run task with UI access after delay
+     * @param task Task run while holding session lock
+     * @param delayMs Delay in milliseconds
+     * @return Handle that can be used to cancel the task
+     */
+    private NotifyScheduler.Handle scheduleAccess(Runnable task, long delayMs) {
+        UI ui = getUI();
+        // Scheduler thread only queues the task, access thread requests the access, so that a slow push does not
+        // stall timers of other UIs
+        return NotifyScheduler.getDefault().runAfter(ui, () -> getAccessChannel(ui).access(task), delayMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void releaseThrottled() {
+        throttledReleaseScheduled = false;
+        throttledRelease = null;
+        QueuedNotification next;
+        while((next = throttled.peek()) != null) {
+            // Expired notifications do not take tokens
+            if(dropIfExpired(next.item) || dropIfBlocked()) {
+                throttled.poll();
+                continue;
+            }
+            long waitNanos = acquirePermit(System.nanoTime());
+            if(waitNanos > 0) {
+                scheduleThrottledRelease(waitNanos);
+                return;
+            }
+            throttled.poll();
+            instanceShow(next.item, next.showNanos);
+        }
+    }
+
+    private static TokenBucket getSessionRateLimit(VaadinSession session) {
+        return session == null ? null : (TokenBucket) session.getAttribute(SESSION_RATE_LIMIT);
     }
 
     /**
@@ -209,7 +856,8 @@ public class Notify extends AbstractExtension {
     }
 
     /**
-     * Show notification
+     * Show notification. This method can be also called from other threads, in which case notification is queued
+     * without taking session lock and shown with next UI access.
      * @param ui UI
      * @param notification Notification shown
      * @throws NotifyRuntimeException In case of error
@@ -219,21 +867,382 @@ public class Notify extends AbstractExtension {
             throw new NotifyUINotResolvedException();
         }
 
-        if(UI.getCurrent() != ui) {
-            ui.access(() -> internalShow(ui, notification));
+        final long showNanos = System.nanoTime();
+        if(UI.getCurrent() == ui) {
+            internalShow(ui, notification, showNanos);
+            return;
+        }
+
+        Notify instance = registry.get(ui);
+        if(instance == null) {
+            // Extension can only be created while holding the session lock
+            AccessExecutor.access(ui, () -> internalShow(ui, notification, showNanos));
         } else {
-            internalShow(ui, notification);
+            instance.enqueue(new QueuedNotification(notification, showNanos, true));
         }
     }
 
-    private static void internalShow(UI ui, NotifyItem item) throws NotifyRuntimeException {
-        Notify instance = getInstance(ui);
-        if (instance.clientState == NotifyState.PERMISSION_DENIED) {
+    private static void internalShow(UI ui, NotifyItem item, long showNanos) throws NotifyRuntimeException {
+        getInstance(ui).instanceShowChecked(item, showNanos);
+    }
+
+    private void instanceShowChecked(NotifyItem item, long showNanos) throws NotifyRuntimeException {
+        if (clientState == NotifyState.PERMISSION_DENIED) {
+            metrics.notificationDropped(NotifyMetrics.DropReason.PERMISSION_DENIED);
             throw new NotificationsDeniedByUserException();
-        } else if(instance.clientState == NotifyState.NOT_SUPPORTED) {
+        } else if(clientState == NotifyState.NOT_SUPPORTED) {
+            metrics.notificationDropped(NotifyMetrics.DropReason.NOT_SUPPORTED);
             throw new NotificationAPINotSupportedException();
         }
-        instance.instanceShow(item);
+        deliver(item, showNanos);
+    }
+
+    /**
+     * Notification queued from other thread, with time it was queued
+     */
+    private static class QueuedNotification {
+        private final NotifyItem item;
+        private final long showNanos;
+
+        // If failing client state is reported to UI's error handler, instead of only counting the drop
+        private final boolean checked;
+
+        private QueuedNotification(NotifyItem item, long showNanos, boolean checked) {
+            this.item = item;
+            this.showNanos = showNanos;
+            this.checked = checked;
+        }
+    }
+
+    /**
+     * Queue notification to outbox without taking session lock or blocking. First notification queued schedules UI
+     * access that drains all notifications queued before it runs. The access is requested by {@link AccessExecutor},
+     * so the calling thread never drains. If outbox is full, its overflow policy is applied.
+     * @param notification Notification queued
+     * @return true if notification was queued, false if notification expired or outbox policy dropped it
+     */
+    private boolean enqueue(QueuedNotification notification) {
+        if(dropIfExpired(notification.item)) {
+            return false;
+        }
+        OutboxPolicy policy = outbox.getPolicy();
+        int dropped = outbox.offer(notification, notification.item.getPriority().ordinal());
+        if(dropped != 0) {
+            NotifyMetrics.DropReason reason = policy == OutboxPolicy.COLLAPSE ? NotifyMetrics.DropReason.COLLAPSED
+                    : NotifyMetrics.DropReason.OUTBOX_FULL;
+            for(int i = Math.abs(dropped); i > 0; --i) {
+                metrics.notificationDropped(reason);
+            }
+            if(dropped == NotifyOutbox.REJECTED) {
+                return false;
+            }
+        }
+        if(outboxDrainScheduled.compareAndSet(false, true)) {
+            UI ui = getUI();
+            if(ui == null || ui.getSession() == null) {
+                outbox.clear();
+                outboxDrainScheduled.set(false);
+                throw ui == null ? new NotifyUINotResolvedException() : new UIDetachedException();
+            }
+            // Access is requested by access thread, as it may run the drain and push on the requesting thread
+            getAccessChannel(ui).access(this::drainOutbox);
+        }
+        return true;
+    }
+
+    /**
+     * Get channel of accesses to UI of this extension
+     * @param ui UI of this extension
+     * @return Channel, created when first needed
+     */
+    private synchronized AccessExecutor.Channel getAccessChannel(UI ui) {
+        if(accessChannel == null) {
+            accessChannel = new AccessExecutor.Channel(ui);
+        }
+        return accessChannel;
+    }
+
+    private void drainOutbox() {
+        // Cleared before draining, so notifications queued while draining will schedule a new access
+        outboxDrainScheduled.set(false);
+        NotifyRuntimeException failure = null;
+        QueuedNotification queued;
+        while((queued = outbox.poll()) != null) {
+            try {
+                if(queued.checked) {
+                    instanceShowChecked(queued.item, queued.showNanos);
+                } else if(!dropIfBlocked()) {
+                    deliver(queued.item, queued.showNanos);
+                }
+            } catch (NotifyRuntimeException e) {
+                failure = e;
+            }
+        }
+        // Same exception would be thrown for every item, report it once to UI's error handler
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Queue notification to outbox of this UI without taking session lock or blocking. Used by broadcasts, so one
+     * slow or stuck UI does not stall delivery to others.
+     * @param notification Notification shown
+     * @return true if notification was queued, false if UI is detached, notifications are blocked by client, or
+     * outbox policy dropped it
+     */
+    boolean offer(NotifyItem notification) {
+        // Checked also here, so broadcast does not report notification delivered to blocked client
+        if(dropIfBlocked()) {
+            return false;
+        }
+        try {
+            return enqueue(new QueuedNotification(notification, System.nanoTime(), false));
+        } catch (UIDetachedException | NotifyUINotResolvedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Limit amount of notifications queued to UI from other threads. When UI's connection stalls, notifications are
+     * queued until next UI access, and the limit keeps the queue from growing without bound.
+     * @param ui UI
+     * @param capacity Maximum amount of queued notifications (default 1000)
+     * @param policy What is done when outbox is full
+     */
+    public static void setOutboxLimit(UI ui, int capacity, OutboxPolicy policy) {
+        withInstance(ui, instance -> instance.outbox.setLimit(capacity, policy));
+    }
+
+    /**
+     * Get amount of notifications queued to UI from other threads, waiting for next UI access
+     * @param ui UI
+     * @return Depth of outbox, 0 if UI does not have Notify extension
+     */
+    public static int getOutboxDepth(UI ui) {
+        return getInstanceOptional(ui).map(instance -> instance.outbox.getDepth()).orElse(0);
+    }
+
+    /**
+     * Register UI under principal id, eg. user name, so it receives notifications shown with
+     * {@link #showToUser(String, NotifyItem)}. UI is removed from index when it is detached, also when its session is
+     * destroyed. This method can be also called from other threads.
+     * @param ui UI
+     * @param principalId Principal id, null to remove UI from principal index
+     */
+    public static void setPrincipal(UI ui, String principalId) {
+        withInstance(ui, instance -> instance.instanceSetPrincipal(principalId));
+    }
+
+    /**
+     * Subscribe UI to topic, so it receives notifications shown with {@link #showToTopic(String, NotifyItem)}. UI is
+     * unsubscribed from all topics when it is detached, also when its session is destroyed. This method can be also
+     * called from other threads.
+     * @param ui UI
+     * @param topic Topic
+     */
+    public static void subscribe(UI ui, String topic) {
+        Objects.requireNonNull(topic);
+        withInstance(ui, instance -> instance.instanceSubscribe(topic));
+    }
+
+    /**
+     * Unsubscribe UI from topic. This method can be also called from other threads.
+     * @param ui UI
+     * @param topic Topic
+     */
+    public static void unsubscribe(UI ui, String topic) {
+        Objects.requireNonNull(topic);
+        getInstanceOptional(ui).ifPresent(instance -> instance.instanceUnsubscribe(topic));
+    }
+
+    /**
+     * Show notification in all UIs registered under principal id. This method can be called from any thread, it does
+     * not take session locks or block, notification is queued to each UI and shown with next UI access. UIs where
+     * notifications are denied or not supported count the notification as dropped.
+     * @param principalId Principal id given with {@link #setPrincipal(UI, String)}
+     * @param notification Notification shown. It is frozen, so the same payload is shared by all UIs and the given
+     *                     instance can be modified after calling this.
+     * @return Amount of UIs notification was queued to
+     */
+    public static int showToUser(String principalId, NotifyItem notification) {
+        return showTo(principals.get(Objects.requireNonNull(principalId)), notification);
+    }
+
+    /**
+     * Show notification in all UIs subscribed to topic. This method can be called from any thread, it does not take
+     * session locks or block, notification is queued to each UI and shown with next UI access. UIs where
+     * notifications are denied or not supported count the notification as dropped.
+     * @param topic Topic given with {@link #subscribe(UI, String)}
+     * @param notification Notification shown. It is frozen, so the same payload is shared by all UIs and the given
+     *                     instance can be modified after calling this.
+     * @return Amount of UIs notification was queued to
+     */
+    public static int showToTopic(String topic, NotifyItem notification) {
+        return showTo(topics.get(Objects.requireNonNull(topic)), notification);
+    }
+
+    private static int showTo(Notify[] recipients, NotifyItem item) {
+        if(recipients.length == 0) {
+            return 0;
+        }
+        QueuedNotification queued = new QueuedNotification(Objects.requireNonNull(item).freeze(), System.nanoTime(),
+                false);
+        int count = 0;
+        for(Notify recipient : recipients) {
+            try {
+                if(recipient.enqueue(queued)) {
+                    ++count;
+                }
+            } catch (UIDetachedException | NotifyUINotResolvedException e) {
+                // Detached after index was read
+            }
+        }
+        return count;
+    }
+
+    private static void withInstance(UI ui, Consumer<Notify> action) {
+        if(ui == null) {
+            throw new NotifyUINotResolvedException();
+        }
+        Notify instance = registry.get(ui);
+        if(instance != null) {
+            action.accept(instance);
+        } else if(UI.getCurrent() == ui) {
+            action.accept(getInstance(ui));
+        } else {
+            // Extension can only be created while holding the session lock
+            ui.access(() -> action.accept(getInstance(ui)));
+        }
+    }
+
+    private void instanceSetPrincipal(String principalId) {
+        synchronized (subscribedTopics) {
+            if(Objects.equals(principal, principalId)) {
+                return;
+            }
+            if(indexed && principal != null) {
+                principals.remove(principal, this);
+            }
+            principal = principalId;
+            if(indexed && principal != null) {
+                principals.add(principal, this);
+            }
+        }
+    }
+
+    private void instanceSubscribe(String topic) {
+        synchronized (subscribedTopics) {
+            if(subscribedTopics.add(topic) && indexed) {
+                topics.add(topic, this);
+            }
+        }
+    }
+
+    private void instanceUnsubscribe(String topic) {
+        synchronized (subscribedTopics) {
+            if(subscribedTopics.remove(topic) && indexed) {
+                topics.remove(topic, this);
+            }
+        }
+    }
+
+    /**
+     * Define metrics implementation receiving events of all Notify instances
+     * @param notifyMetrics Metrics implementation, null to disable metrics
+     */
+    public static void setMetrics(NotifyMetrics notifyMetrics) {
+        metrics = notifyMetrics == null ? NotifyMetrics.NOOP : notifyMetrics;
+    }
+
+    /**
+     * Get metrics implementation in use
+     * @return Metrics implementation, NotifyMetrics.NOOP if not defined
+     */
+    public static NotifyMetrics getMetrics() {
+        return metrics;
+    }
+
+    protected void instanceSetRateLimit(TokenBucket bucket, OverflowPolicy policy) {
+        rateLimit = bucket;
+        overflowPolicy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Limit rate of notifications shown in UI. Notifications are also limited by session and global limits.
+     * Notifications over the limit are handled by overflow policy of UI.
+     * @param ui UI
+     * @param bucket Token bucket used only by this UI, null to remove limit
+     * @param policy What is done to notifications over the limit
+     */
+    public static void setRateLimit(UI ui, TokenBucket bucket, OverflowPolicy policy) {
+        getInstance(ui).instanceSetRateLimit(bucket, policy);
+    }
+
+    /**
+     * Limit rate of notifications shown in all UIs of session
+     * @param session Session
+     * @param bucket Token bucket shared by UIs of session, null to remove limit
+     */
+    public static void setSessionRateLimit(VaadinSession session, TokenBucket bucket) {
+        session.lock();
+        try {
+            session.setAttribute(SESSION_RATE_LIMIT, bucket);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    /**
+     * Limit rate of notifications shown in all UIs of all sessions
+     * @param bucket Token bucket shared by all UIs, null to remove limit
+     */
+    public static void setGlobalRateLimit(TokenBucket bucket) {
+        globalRateLimit = bucket;
+    }
+
+    protected void instanceSetAggregation(NotifyAggregation aggregation) {
+        aggregator.setAggregation(aggregation);
+    }
+
+    /**
+     * Define how notifications with group key are aggregated in UI. Notifications without group key are not
+     * aggregated. Aggregation is done before rate limiting, so summary notification takes a single token.
+     * @param ui UI
+     * @param aggregation Aggregation, null to show all notifications separately
+     */
+    public static void setAggregation(UI ui, NotifyAggregation aggregation) {
+        getInstance(ui).instanceSetAggregation(aggregation);
+    }
+
+    protected void instanceSetPendingLimits(int maxPending, long timeToLiveMs) {
+        pendingNotifications.setMaxSize(maxPending);
+        pendingNotifications.setTtlMs(timeToLiveMs);
+    }
+
+    protected NotifyPendingStats instanceGetPendingStats() {
+        return new NotifyPendingStats(pendingNotifications.size(), pendingNotifications.getHandledCount(),
+                pendingNotifications.getExpiredCount(), pendingNotifications.getOverflowCount());
+    }
+
+    /**
+     * Define how many notifications are kept waiting for client to report them handled, and for how long. Entries
+     * exceeding these limits are evicted, and click listeners of evicted notifications are not called anymore.
+     * @param ui UI
+     * @param maxPending Maximum amount of pending notifications (default 1000)
+     * @param timeToLiveMs Maximum time notification is kept pending in milliseconds (default 10 minutes)
+     */
+    public static void setPendingLimits(UI ui, int maxPending, long timeToLiveMs) {
+        getInstance(ui).instanceSetPendingLimits(maxPending, timeToLiveMs);
+    }
+
+    /**
+     * Get statistics of pending notifications
+     * @param ui UI
+     * @return Snapshot of pending notification counters
+     */
+    public static NotifyPendingStats getPendingStats(UI ui) {
+        return getInstance(ui).instanceGetPendingStats();
     }
 
     protected void instanceAddListener(NotifyStateListener listener) {
@@ -290,7 +1299,8 @@ public class Notify extends AbstractExtension {
      * @return What is client state of Notification API
      */
     public static NotifyState getClientState(UI ui) {
-        return getInstanceOptional(ui).map(e -> e.clientState).orElse(NotifyState.UNINITIALIZED);
+        Notify instance = registry.get(ui);
+        return instance != null ? instance.clientState : NotifyState.UNINITIALIZED;
     }
 
     /**
@@ -349,4 +1359,40 @@ public class Notify extends AbstractExtension {
         getInstance(resolveUI()).getState().closeOnClick = closeOnClick;
     }
 
+    /**
+     * Define if browser tabs of the same origin coordinate notifications. When enabled, notification with
+     * de-duplication key (see {@link NotifyItem#setDedupKey(String)}) is displayed only by one tab, the other tabs
+     * settle their copy locally without calling server. Enable in every UI whose tabs should take part.
+     * @param tabCoordination true to coordinate tabs
+     * @throws NotifyUINotResolvedException If method fails to resolve UI
+     */
+    public static void setTabCoordination(boolean tabCoordination) throws NotifyUINotResolvedException {
+        setTabCoordination(resolveUI(), tabCoordination);
+    }
+
+    /**
+     * Define if browser tabs of the same origin coordinate notifications. When enabled, notification with
+     * de-duplication key (see {@link NotifyItem#setDedupKey(String)}) is displayed only by one tab, the other tabs
+     * settle their copy locally without calling server. Enable in every UI whose tabs should take part.
+     * @param ui UI
+     * @param tabCoordination true to coordinate tabs
+     */
+    public static void setTabCoordination(UI ui, boolean tabCoordination) {
+        getInstance(ui).getState().tabCoordination = tabCoordination;
+    }
+
+    /**
+     * Define how many notifications page displays at once. Browsers limit visible notifications (eg. Chrome three,
+     * Firefox one per page) and silently drop or replace the rest, so client keeps others in display queue, ordered
+     * by priority, until earlier ones are closed or time out.
+     * @param ui UI
+     * @param maxVisible Maximum amount of notifications displayed at once, default is 3
+     */
+    public static void setMaxVisible(UI ui, int maxVisible) {
+        if(maxVisible < 1) {
+            throw new IllegalArgumentException("Invalid maximum amount " + maxVisible);
+        }
+        getInstance(ui).getState().maxVisible = maxVisible;
+    }
+
 }
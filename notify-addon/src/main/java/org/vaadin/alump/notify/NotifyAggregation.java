@@ -0,0 +1,98 @@
+/**
+ * NotifyAggregation.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Defines how notifications with same group key are combined. Window of group opens when first notification of the
+ * group is shown, and closes when window time has passed or maximum amount of notifications has been collected. Group
+ * with single notification is shown as is, otherwise combiner builds summary notification of the group.
+ */
+public class NotifyAggregation implements Serializable {
+
+    /**
+     * Builds summary notification of aggregated notifications
+     */
+    @FunctionalInterface
+    public interface Combiner extends Serializable {
+        /**
+         * Build summary notification. If summary does not have click listener, clicking it calls click listeners of
+         * aggregated notifications.
+         * @param groupKey Group key of notifications
+         * @param items Aggregated notifications in order they were shown, at least two
+         * @return New summary notification
+         */
+        NotifyItem combine(String groupKey, List<NotifyItem> items);
+    }
+
+    /**
+     * Combiner titling summary with amount of notifications, eg. "50 new notifications", and using the latest
+     * notification's title as body and its icon as icon
+     */
+    public static final Combiner COUNT = (groupKey, items) -> {
+        NotifyItem latest = items.get(items.size() - 1);
+        return new NotifyItem().setTitle(items.size() + " new notifications").setBody(latest.getTitle())
+                .setIcon(latest.getIconOrNull());
+    };
+
+    private final long windowMs;
+    private final int maxItems;
+    private final Combiner combiner;
+
+    /**
+     * Create aggregation using {@link #COUNT} combiner
+     * @param windowMs Time notifications are collected after the first one, in milliseconds
+     * @param maxItems Maximum amount of notifications collected, group is shown immediately when reached
+     */
+    public NotifyAggregation(long windowMs, int maxItems) {
+        this(windowMs, maxItems, COUNT);
+    }
+
+    /**
+     * Create aggregation
+     * @param windowMs Time notifications are collected after the first one, in milliseconds
+     * @param maxItems Maximum amount of notifications collected, group is shown immediately when reached
+     * @param combiner Combiner building summary notification
+     */
+    public NotifyAggregation(long windowMs, int maxItems, Combiner combiner) {
+        if(windowMs < 0) {
+            throw new IllegalArgumentException("Invalid window " + windowMs);
+        }
+        if(maxItems < 1) {
+            throw new IllegalArgumentException("Invalid maximum amount " + maxItems);
+        }
+        this.windowMs = windowMs;
+        this.maxItems = maxItems;
+        this.combiner = Objects.requireNonNull(combiner);
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public Combiner getCombiner() {
+        return combiner;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * NotifyBroadcast.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress and result of a single broadcast started with {@link NotifyBroadcaster}
+ */
+public class NotifyBroadcast {
+
+    private final NotifyItem notification;
+    private final int targetCount;
+    private final long startedNanos;
+    private final AtomicInteger completed = new AtomicInteger(0);
+    private final AtomicInteger failed = new AtomicInteger(0);
+    private final CountDownLatch done;
+    private volatile long finishedNanos = -1L;
+
+    protected NotifyBroadcast(NotifyItem notification, int targetCount) {
+        this.notification = notification;
+        this.targetCount = targetCount;
+        this.startedNanos = System.nanoTime();
+        this.done = new CountDownLatch(targetCount);
+        if(targetCount == 0) {
+            finishedNanos = startedNanos;
+        }
+    }
+
+    void markCompleted() {
+        completed.incrementAndGet();
+        countDown();
+    }
+
+    void markFailed() {
+        failed.incrementAndGet();
+        countDown();
+    }
+
+    private void countDown() {
+        done.countDown();
+        if(done.getCount() == 0 && finishedNanos < 0) {
+            finishedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Get notification broadcasted
+     * @return Notification broadcasted
+     */
+    public NotifyItem getNotification() {
+        return notification;
+    }
+
+    /**
+     * Get amount of UIs targeted by this broadcast
+     * @return Amount of UIs with Notify extension when broadcast was started
+     */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * Get amount of UIs where notification was queued to outbox, it is passed to client with next UI access
+     * @return Amount of successful deliveries so far
+     */
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Get amount of UIs where delivery failed (UI detached, notifications denied or not supported, outbox full, or
+     * error)
+     * @return Amount of failed deliveries so far
+     */
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Check if all targeted UIs have been handled
+     * @return true if broadcast has finished
+     */
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Wait until broadcast has finished
+     * @param timeout Maximum time to wait
+     * @param unit Unit of timeout
+     * @return true if broadcast finished, false if timeout was reached first
+     * @throws InterruptedException If waiting thread was interrupted
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * Get duration of broadcast
+     * @return Milliseconds from start to finish, or to now if broadcast is still running
+     */
+    public long getDurationMs() {
+        long end = finishedNanos < 0 ? System.nanoTime() : finishedNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+    }
+}
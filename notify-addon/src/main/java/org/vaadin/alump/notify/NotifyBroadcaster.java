@@ -0,0 +1,186 @@
+/**
+ * NotifyBroadcaster.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts a notification to all live UIs that have Notify extension. Notification is queued to the bounded outbox
+ * of each UI without taking session locks, so a slow or stuck UI never stalls delivery to others. UIs are processed
+ * by a bounded pool of worker threads.
+ */
+public class NotifyBroadcaster {
+
+    private final static Logger LOGGER = Logger.getLogger(NotifyBroadcaster.class.getName());
+
+    private static volatile NotifyBroadcaster defaultInstance;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create new broadcaster with one worker per available processor
+     */
+    public NotifyBroadcaster() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create new broadcaster
+     * @param workers Maximum amount of worker threads used to deliver broadcasts
+     */
+    public NotifyBroadcaster(int workers) {
+        if(workers < 1) {
+            throw new IllegalArgumentException("Invalid worker count " + workers);
+        }
+        executor = new ThreadPoolExecutor(workers, workers, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new WorkerThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get shared broadcaster instance
+     * @return Default broadcaster, created when first needed
+     */
+    public static NotifyBroadcaster getDefault() {
+        NotifyBroadcaster instance = defaultInstance;
+        if(instance == null) {
+            synchronized (NotifyBroadcaster.class) {
+                instance = defaultInstance;
+                if(instance == null) {
+                    instance = new NotifyBroadcaster();
+                    defaultInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get amount of live UIs with Notify extension
+     * @return Amount of UIs broadcast would be delivered to
+     */
+    public static int getLiveCount() {
+        return Notify.getLiveInstanceCount();
+    }
+
+    /**
+     * Get maximum amount of worker threads
+     * @return Worker thread count
+     */
+    public int getWorkerCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Broadcast notification to all live UIs with Notify extension
+     * @param notification Notification broadcasted. It is frozen, so the same payload is shared by all UIs and the
+     *                     given instance can be modified after calling this.
+     * @return Broadcast handle that can be used to follow progress of delivery
+     */
+    public NotifyBroadcast broadcast(NotifyItem notification) {
+        return broadcast(Notify.getLiveInstances(), 0, notification);
+    }
+
+    /**
+     * Broadcast notification to given UIs
+     * @param uis UIs where notification is shown
+     * @param notification Notification broadcasted. It is frozen, so the same payload is shared by all UIs and the
+     *                     given instance can be modified after calling this.
+     * @return Broadcast handle that can be used to follow progress of delivery
+     */
+    public NotifyBroadcast broadcast(Collection<UI> uis, NotifyItem notification) {
+        List<Notify> targets = new ArrayList<>(uis.size());
+        int missing = 0;
+        for(UI ui : uis) {
+            Optional<Notify> instance = Notify.getInstanceOptional(ui);
+            if(instance.isPresent()) {
+                targets.add(instance.get());
+            } else {
+                ++missing;
+            }
+        }
+        return broadcast(targets, missing, notification);
+    }
+
+    private NotifyBroadcast broadcast(List<Notify> targets, int unreachable, NotifyItem item) {
+        // Payload built once and shared by all UIs
+        FrozenNotifyItem notification = Objects.requireNonNull(item).freeze();
+
+        NotifyBroadcast broadcast = new NotifyBroadcast(notification, targets.size() + unreachable);
+        // UIs without extension can not be reached
+        for(int i = unreachable; i > 0; --i) {
+            broadcast.markFailed();
+        }
+
+        int slices = Math.min(getWorkerCount(), targets.size());
+        for(int slice = 0; slice < slices; ++slice) {
+            final int first = slice;
+            executor.execute(() -> {
+                for(int i = first; i < targets.size(); i += slices) {
+                    deliver(targets.get(i), notification, broadcast);
+                }
+            });
+        }
+
+        return broadcast;
+    }
+
+    private static void deliver(Notify target, NotifyItem notification, NotifyBroadcast broadcast) {
+        try {
+            // Queued without session lock, UI shows it with next access
+            if(target.offer(notification)) {
+                broadcast.markCompleted();
+            } else {
+                broadcast.markFailed();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to deliver broadcasted notification", e);
+            broadcast.markFailed();
+        }
+    }
+
+    /**
+     * Stop worker threads of this broadcaster. Broadcasts already started will still be delivered.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolCounter = new AtomicInteger(0);
+        private final int poolNumber = poolCounter.incrementAndGet();
+        private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                    "notify-broadcast-" + poolNumber + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.vaadin.alump.notify;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Event given when Notify notification is clicked
@@ -33,4 +34,12 @@ public class NotifyClickEvent implements Serializable {
     public NotifyItem getNotification() {
         return notification;
     }
+
+    /**
+     * Get notifications combined to clicked summary notification
+     * @return Aggregated notifications, empty if clicked notification is not a summary
+     */
+    public List<NotifyItem> getAggregatedItems() {
+        return notification.getAggregatedItems();
+    }
 }
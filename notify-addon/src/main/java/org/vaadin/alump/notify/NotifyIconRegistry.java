@@ -0,0 +1,208 @@
+/**
+ * NotifyIconRegistry.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.ConnectorResource;
+import com.vaadin.server.DownloadStream;
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.FileResource;
+import com.vaadin.server.RequestHandler;
+import com.vaadin.server.Resource;
+import com.vaadin.server.ThemeResource;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session wide content addressed registry of notification icons. Each distinct icon gets a stable key derived from its
+ * identity, so the same icon always has the same URL in all UIs of the session. Connector resources (streams, files,
+ * class resources) are served by this request handler. Icons keyed by their content are cached as immutable, icons
+ * keyed only by object identity (eg. streams) are cached briefly, as their keys are valid only in this JVM.
+ */
+class NotifyIconRegistry implements RequestHandler {
+
+    static final String PATH = "notify-icon";
+    static final long CACHE_TIME_MS = TimeUnit.DAYS.toMillis(365);
+    static final String CACHE_CONTROL = "public, max-age=" + TimeUnit.MILLISECONDS.toSeconds(CACHE_TIME_MS)
+            + ", immutable";
+    static final long IDENTITY_CACHE_TIME_MS = TimeUnit.HOURS.toMillis(1);
+    static final String IDENTITY_CACHE_CONTROL = "private, max-age="
+            + TimeUnit.MILLISECONDS.toSeconds(IDENTITY_CACHE_TIME_MS);
+
+    // Prefix of identity keys, content keys are plain hex
+    private static final String IDENTITY_PREFIX = "i";
+
+    private static final int MAX_ICONS = 256;
+    private static final AtomicLong identityCounter = new AtomicLong(0);
+    // Keeps identity keys of this JVM apart from keys given before restart or by other nodes
+    private static final String JVM_NONCE = Long.toHexString(new SecureRandom().nextLong());
+
+    private final Map<String, ConnectorResource> resources = Collections.synchronizedMap(
+            new LinkedHashMap<String, ConnectorResource>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ConnectorResource> eldest) {
+                    return size() > MAX_ICONS;
+                }
+            });
+
+    // Resources without content description are addressed by their identity. Not serialized, keys of deserialized
+    // registry are given again when needed.
+    private transient Map<Resource, String> identityKeys;
+
+    /**
+     * Get registry of session, registry is created and installed when first needed. Session must be locked.
+     * @param session Session
+     * @return Registry of session
+     */
+    static NotifyIconRegistry get(VaadinSession session) {
+        NotifyIconRegistry registry = session.getAttribute(NotifyIconRegistry.class);
+        if(registry == null) {
+            registry = new NotifyIconRegistry();
+            session.setAttribute(NotifyIconRegistry.class, registry);
+            session.addRequestHandler(registry);
+        }
+        return registry;
+    }
+
+    /**
+     * Resolve content key of icon
+     * @param icon Icon resource
+     * @return Key that is same for all resources pointing to the same content
+     */
+    String getKey(Resource icon) {
+        if(icon instanceof ThemeResource) {
+            return hash("theme:" + ((ThemeResource) icon).getResourceId());
+        } else if(icon instanceof ExternalResource) {
+            return hash("url:" + ((ExternalResource) icon).getURL());
+        } else if(icon instanceof FileResource) {
+            File file = ((FileResource) icon).getSourceFile();
+            return hash("file:" + file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length());
+        } else {
+            return getIdentityKeys().computeIfAbsent(icon,
+                    r -> IDENTITY_PREFIX + hash("id:" + JVM_NONCE + ":" + identityCounter.incrementAndGet()));
+        }
+    }
+
+    private synchronized Map<Resource, String> getIdentityKeys() {
+        if(identityKeys == null) {
+            identityKeys = Collections.synchronizedMap(new WeakHashMap<>());
+        }
+        return identityKeys;
+    }
+
+    static boolean isIdentityKey(String key) {
+        return key.startsWith(IDENTITY_PREFIX);
+    }
+
+    /**
+     * Get resource that should be registered to connector for the given icon
+     * @param key Content key of icon
+     * @param icon Icon resource
+     * @return Resource that can be registered with connector's setResource
+     */
+    Resource register(String key, Resource icon) {
+        if(icon instanceof ConnectorResource) {
+            ConnectorResource resource = (ConnectorResource) icon;
+            resources.put(key, resource);
+            return new ExternalResource(ApplicationConstants.APP_PROTOCOL_PREFIX + PATH + "/" + key + "/"
+                    + encodeFilename(resource.getFilename()));
+        } else {
+            return icon;
+        }
+    }
+
+    /**
+     * Mark icon registered earlier as used, so it is not evicted while in use
+     * @param key Content key of icon
+     */
+    void touch(String key) {
+        resources.get(key);
+    }
+
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request, VaadinResponse response)
+            throws IOException {
+        String path = request.getPathInfo();
+        String prefix = "/" + PATH + "/";
+        if(path == null || !path.startsWith(prefix)) {
+            return false;
+        }
+
+        int keyEnd = path.indexOf('/', prefix.length());
+        String key = path.substring(prefix.length(), keyEnd < 0 ? path.length() : keyEnd);
+        ConnectorResource resource = resources.get(key);
+        DownloadStream stream = null;
+        if(resource != null) {
+            // Stream and connector resources expect session lock, stream is written without it
+            session.lock();
+            try {
+                stream = resource.getStream();
+            } finally {
+                session.unlock();
+            }
+        }
+        if(stream == null) {
+            response.sendError(404, "Icon not found");
+            return true;
+        }
+
+        if(isIdentityKey(key)) {
+            stream.setCacheTime(IDENTITY_CACHE_TIME_MS);
+            stream.setParameter("Cache-Control", IDENTITY_CACHE_CONTROL);
+        } else {
+            // Key changes whenever content does, so the URL can be cached forever
+            stream.setCacheTime(CACHE_TIME_MS);
+            stream.setParameter("Cache-Control", CACHE_CONTROL);
+        }
+        stream.writeResponse(request, response);
+        return true;
+    }
+
+    private static String encodeFilename(String filename) {
+        if(filename == null || filename.isEmpty()) {
+            return "icon";
+        }
+        try {
+            return URLEncoder.encode(filename, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            return "icon";
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash in hex
+     */
+    static String hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < value.length(); ++i) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+}
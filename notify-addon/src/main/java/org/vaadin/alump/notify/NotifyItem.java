@@ -18,7 +18,11 @@
 package org.vaadin.alump.notify;
 
 import com.vaadin.server.Resource;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -31,6 +35,14 @@ public class NotifyItem {
     private Resource sound;
     private NotifyClickListener clickListener;
     private Integer timeoutMs;
+    private String groupKey;
+    private String tag;
+    private boolean renotify = false;
+    private String dedupKey;
+    private NotifyPriority priority = NotifyPriority.NORMAL;
+    // Epoch milliseconds, 0 if notification does not expire
+    private long expiresAt = 0L;
+    private List<NotifyItem> aggregatedItems = Collections.emptyList();
 
     /**
      * Create new notification
@@ -117,6 +129,84 @@ public class NotifyItem {
         return setTimeoutMs(seconds * 1000);
     }
 
+    /**
+     * Set group key of notification. If UI has aggregation defined, notifications with same group key shown within
+     * aggregation window are combined to single summary notification.
+     * @param groupKey Group key, null to never aggregate this notification
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setGroupKey(String groupKey) {
+        this.groupKey = groupKey;
+        return this;
+    }
+
+    /**
+     * Set tag of notification. Showing notification with same tag as notification still open replaces it in place,
+     * and only changed values are sent to client. Useful for progress style notifications.
+     * @param tag Tag of notification, null if notification should not replace others
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setTag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    /**
+     * Define if user should be alerted again when this notification replaces earlier one with same tag
+     * @param renotify true to alert again, false to replace silently (default)
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setRenotify(boolean renotify) {
+        this.renotify = renotify;
+        return this;
+    }
+
+    /**
+     * Set de-duplication key of notification. When tab coordination is enabled (see
+     * {@link Notify#setTabCoordination(com.vaadin.ui.UI, boolean)}), notification with same key shown in several browser tabs of
+     * the user is displayed only by one of them.
+     * @param dedupKey De-duplication key, null if notification is shown by every tab receiving it
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+        return this;
+    }
+
+    /**
+     * Set priority of notification. When browser already shows as many notifications as it can, client displays
+     * queued notifications of higher priority first.
+     * @param priority Priority, null for {@link NotifyPriority#NORMAL}
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setPriority(NotifyPriority priority) {
+        this.priority = priority == null ? NotifyPriority.NORMAL : priority;
+        return this;
+    }
+
+    /**
+     * Set time after which notification is not shown anymore. Notification still waiting in a queue of server or
+     * client when it expires, eg. for rate limit, display slot or permission of user, is discarded.
+     * @param expiresAt Time of expiry, null if notification does not expire (default)
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt == null ? 0L : Math.max(1L, expiresAt.toEpochMilli());
+        return this;
+    }
+
+    /**
+     * Set time to live of notification, counted from now. See {@link #setExpiresAt(Instant)}.
+     * @param milliseconds Time to live in milliseconds, null if notification does not expire
+     * @return This instance, allows calling set methods after new
+     */
+    public NotifyItem setTimeToLiveMs(Integer milliseconds) {
+        if(milliseconds != null && milliseconds < 0) {
+            throw new IllegalArgumentException("Invalid time to live " + milliseconds);
+        }
+        return setExpiresAt(milliseconds == null ? null : Instant.now().plusMillis(milliseconds));
+    }
+
     public String getTitle() {
         return title;
     }
@@ -145,4 +235,129 @@ public class NotifyItem {
         return Optional.ofNullable(timeoutMs);
     }
 
+    public Optional<String> getGroupKey() {
+        return Optional.ofNullable(groupKey);
+    }
+
+    public Optional<String> getTag() {
+        return Optional.ofNullable(tag);
+    }
+
+    public boolean isRenotify() {
+        return renotify;
+    }
+
+    public Optional<String> getDedupKey() {
+        return Optional.ofNullable(dedupKey);
+    }
+
+    public NotifyPriority getPriority() {
+        return priority;
+    }
+
+    public Optional<Instant> getExpiresAt() {
+        long millis = getExpiresAtMillis();
+        return millis == 0L ? Optional.empty() : Optional.of(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * Get notifications combined to this summary notification
+     * @return Aggregated notifications in order they were shown, empty if this is not a summary
+     */
+    public List<NotifyItem> getAggregatedItems() {
+        return aggregatedItems;
+    }
+
+    void setAggregatedItems(List<NotifyItem> items) {
+        aggregatedItems = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Get modifiable copy of this notification, also of frozen one
+     * @return New notification with same values
+     */
+    NotifyItem copy() {
+        NotifyItem copy = new NotifyItem();
+        copy.title = getTitle();
+        copy.body = getBodyOrNull();
+        copy.icon = getIconOrNull();
+        copy.sound = getSoundOrNull();
+        copy.clickListener = getClickListenerOrNull();
+        copy.timeoutMs = getTimeoutMsOrNull();
+        copy.groupKey = getGroupKeyOrNull();
+        copy.tag = getTagOrNull();
+        copy.renotify = isRenotify();
+        copy.dedupKey = getDedupKeyOrNull();
+        copy.priority = getPriority();
+        copy.expiresAt = getExpiresAtMillis();
+        copy.aggregatedItems = getAggregatedItems();
+        return copy;
+    }
+
+    /**
+     * Get immutable copy of this notification. Frozen notification can be shared by threads, and its JSON payload is
+     * built only once however many UIs it is shown in, though it is still written to the response of each UI. Use it
+     * when same notification is shown in many UIs.
+     * @return Frozen copy of this notification
+     */
+    public FrozenNotifyItem freeze() {
+        return new FrozenNotifyItem(this);
+    }
+
+    /**
+     * Check if notification is frozen
+     * @return true if notification can not be modified
+     */
+    public boolean isFrozen() {
+        return false;
+    }
+
+    // Accessors without Optional wrapping, used on send path so showing a notification does not allocate
+
+    String getBodyOrNull() {
+        return body;
+    }
+
+    Resource getIconOrNull() {
+        return icon;
+    }
+
+    Resource getSoundOrNull() {
+        return sound;
+    }
+
+    NotifyClickListener getClickListenerOrNull() {
+        return clickListener;
+    }
+
+    Integer getTimeoutMsOrNull() {
+        return timeoutMs;
+    }
+
+    String getGroupKeyOrNull() {
+        return groupKey;
+    }
+
+    String getTagOrNull() {
+        return tag;
+    }
+
+    String getDedupKeyOrNull() {
+        return dedupKey;
+    }
+
+    long getExpiresAtMillis() {
+        return expiresAt;
+    }
+
+    /**
+     * Check if notification has expired
+     * @param nowMillis Current time in epoch milliseconds
+     * @return true if notification should not be shown anymore
+     */
+    boolean isExpired(long nowMillis) {
+        long millis = getExpiresAtMillis();
+        return millis != 0L && millis <= nowMillis;
+    }
+
 }
@@ -0,0 +1,180 @@
+/**
+ * NotifyOutbox.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded outbox of one UI, with a separate lane for each priority. Any thread can offer without locking or blocking,
+ * and the UI drains it while holding the session lock, higher lanes first. When outbox is full, items of lower lanes
+ * make room for items of higher lanes. Depth is kept in a separate counter, so the bound is checked without walking
+ * the lanes. Bound may be briefly exceeded by concurrent offers.
+ * @param <T> Type of queued items
+ */
+class NotifyOutbox<T> implements Serializable {
+
+    /** Returned by {@link #offer(Object, int)} when the offered item itself was dropped */
+    static final int REJECTED = -1;
+
+    private final ConcurrentLinkedDeque<T>[] lanes;
+    private final AtomicInteger depth = new AtomicInteger(0);
+    private volatile int capacity;
+    private volatile OutboxPolicy policy;
+
+    @SuppressWarnings("unchecked")
+    NotifyOutbox(int laneCount, int capacity, OutboxPolicy policy) {
+        lanes = new ConcurrentLinkedDeque[laneCount];
+        for(int i = 0; i < laneCount; ++i) {
+            lanes[i] = new ConcurrentLinkedDeque<>();
+        }
+        setLimit(capacity, policy);
+    }
+
+    /**
+     * Define bound of outbox. Items already queued over new capacity are kept.
+     * @param capacity Maximum amount of queued items
+     * @param policy What is done when outbox is full
+     */
+    void setLimit(int capacity, OutboxPolicy policy) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Invalid outbox capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Queue item, applying overflow policy if outbox is full. Items are dropped only from lanes at or below the lane
+     * of the offered item.
+     * @param item Item queued
+     * @param lane Lane of item, higher is drained first
+     * @return Amount of earlier items dropped to make room, or {@link #REJECTED} if item was not queued
+     */
+    int offer(T item, int lane) {
+        switch(policy) {
+            case DROP_NEWEST:
+                if(depth.incrementAndGet() > capacity) {
+                    // Newest of a lower lane gives room, otherwise the offered item is the newest
+                    T dropped = pollLower(lane, false);
+                    if(dropped == null) {
+                        depth.decrementAndGet();
+                        return REJECTED;
+                    }
+                    depth.decrementAndGet();
+                    lanes[lane].offer(item);
+                    return 1;
+                }
+                lanes[lane].offer(item);
+                return 0;
+            case COLLAPSE:
+                int collapsed = 0;
+                if(depth.get() >= capacity) {
+                    // Higher lanes are kept, even if they alone fill the outbox
+                    for(int i = 0; i <= lane; ++i) {
+                        collapsed += clear(lanes[i]);
+                    }
+                }
+                depth.incrementAndGet();
+                lanes[lane].offer(item);
+                return collapsed;
+            default:
+                depth.incrementAndGet();
+                lanes[lane].offer(item);
+                int dropped = 0;
+                while(depth.get() > capacity) {
+                    T oldest = pollLower(lane + 1, true);
+                    if(oldest == null) {
+                        break;
+                    }
+                    depth.decrementAndGet();
+                    if(oldest == item) {
+                        return REJECTED;
+                    }
+                    ++dropped;
+                }
+                return dropped;
+        }
+    }
+
+    /**
+     * Take item from lowest non-empty lane below given lane
+     * @param below Lanes below this are searched
+     * @param oldest true to take oldest item of lane, false to take newest
+     * @return Item or null if lanes are empty
+     */
+    private T pollLower(int below, boolean oldest) {
+        for(int i = 0; i < below && i < lanes.length; ++i) {
+            T item = oldest ? lanes[i].pollFirst() : lanes[i].pollLast();
+            if(item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take oldest item of highest non-empty lane
+     * @return Item or null if outbox is empty
+     */
+    T poll() {
+        for(int i = lanes.length - 1; i >= 0; --i) {
+            T item = lanes[i].pollFirst();
+            if(item != null) {
+                depth.decrementAndGet();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop all queued items
+     * @return Amount of items dropped
+     */
+    int clear() {
+        int dropped = 0;
+        for(ConcurrentLinkedDeque<T> lane : lanes) {
+            dropped += clear(lane);
+        }
+        return dropped;
+    }
+
+    private int clear(ConcurrentLinkedDeque<T> lane) {
+        int dropped = 0;
+        while(lane.pollFirst() != null) {
+            depth.decrementAndGet();
+            ++dropped;
+        }
+        return dropped;
+    }
+
+    int getDepth() {
+        return depth.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    OutboxPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * NotifyPendingStats.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of pending notification table of one UI
+ */
+public class NotifyPendingStats implements Serializable {
+    private final int pendingCount;
+    private final long handledCount;
+    private final long expiredCount;
+    private final long overflowCount;
+
+    public NotifyPendingStats(int pendingCount, long handledCount, long expiredCount, long overflowCount) {
+        this.pendingCount = pendingCount;
+        this.handledCount = handledCount;
+        this.expiredCount = expiredCount;
+        this.overflowCount = overflowCount;
+    }
+
+    /**
+     * Get amount of notifications waiting for client to report them handled
+     * @return Amount of pending notifications
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Get amount of notifications client has reported handled
+     * @return Amount of handled notifications
+     */
+    public long getHandledCount() {
+        return handledCount;
+    }
+
+    /**
+     * Get amount of notifications evicted because they were pending longer than time-to-live
+     * @return Amount of expired notifications
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * Get amount of notifications evicted because pending table was full
+     * @return Amount of overflowed notifications
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    /**
+     * Get total amount of evicted notifications
+     * @return Expired and overflowed notifications combined
+     */
+    public long getEvictedCount() {
+        return expiredCount + overflowCount;
+    }
+}
@@ -0,0 +1,500 @@
+/**
+ * NotifyScheduler.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+import org.vaadin.alump.notify.exceptions.NotifyUINotResolvedException;
+import org.vaadin.alump.notify.metrics.NotifyMetrics;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedules delayed and recurring notifications. All timers are kept in a hashed timing wheel driven by a single
+ * daemon thread, so scheduling and cancelling are constant time operations and large amounts of timers do not need
+ * threads of their own. Notifications expiring on the same tick are dispatched together through Notify's
+ * background thread path, so each UI is accessed once per tick. Notification that has passed its expiry (see
+ * {@link NotifyItem#setExpiresAt(Instant)}) is discarded by the scheduler, recurring one is not shown anymore.
+ */
+public class NotifyScheduler {
+
+    private final static Logger LOGGER = Logger.getLogger(NotifyScheduler.class.getName());
+
+    /**
+     * Called by scheduler thread with notifications expired during one tick
+     */
+    interface Dispatcher {
+        void dispatch(UI ui, List<NotifyItem> notifications);
+
+        default boolean isAlive(UI ui) {
+            return ui.isAttached();
+        }
+    }
+
+    /**
+     * Handle of scheduled notification
+     */
+    public interface Handle {
+        /**
+         * Cancel scheduled notification. Recurring notifications will not be shown anymore.
+         * @return true if cancelled, false if already cancelled or (non recurring) notification was already shown
+         */
+        boolean cancel();
+
+        /**
+         * Check if notification has been cancelled
+         * @return true if cancelled
+         */
+        boolean isCancelled();
+    }
+
+    private static final int STATE_SCHEDULED = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private static volatile NotifyScheduler defaultInstance;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Dispatcher dispatcher;
+
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduledCount = new AtomicInteger(0);
+
+    private final Object lifecycleLock = new Object();
+    private volatile Thread worker;
+    private volatile boolean shutdown = false;
+    private volatile long startNanos;
+    private long tick = 0;
+
+    /**
+     * Create new scheduler with 100 millisecond ticks and 512 buckets
+     */
+    public NotifyScheduler() {
+        this(100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Create new scheduler
+     * @param tickDuration Resolution of scheduler
+     * @param unit Unit of tick duration
+     * @param wheelSize Amount of buckets in wheel, rounded up to power of two
+     */
+    public NotifyScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        this(tickDuration, unit, wheelSize, NotifyScheduler::dispatchToNotify);
+    }
+
+    NotifyScheduler(long tickDuration, TimeUnit unit, int wheelSize, Dispatcher dispatcher) {
+        if(tickDuration < 1) {
+            throw new IllegalArgumentException("Invalid tick duration " + tickDuration);
+        }
+        if(wheelSize < 1 || wheelSize > (1 << 24)) {
+            throw new IllegalArgumentException("Invalid wheel size " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if(size < 1) {
+            size = 1;
+        }
+        wheel = new Bucket[size];
+        for(int i = 0; i < size; ++i) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Get shared scheduler instance
+     * @return Default scheduler, created when first needed or when previous one has been shut down
+     */
+    public static NotifyScheduler getDefault() {
+        NotifyScheduler instance = defaultInstance;
+        if(instance == null || instance.shutdown) {
+            synchronized (NotifyScheduler.class) {
+                instance = defaultInstance;
+                if(instance == null || instance.shutdown) {
+                    instance = new NotifyScheduler();
+                    defaultInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Show notification at given time
+     * @param ui UI where notification is shown
+     * @param notification Notification shown
+     * @param time When notification is shown
+     * @return Handle that can be used to cancel the notification
+     */
+    public Handle showAt(UI ui, NotifyItem notification, Instant time) {
+        long delayMs = time.toEpochMilli() - System.currentTimeMillis();
+        return showAfter(ui, notification, Math.max(0L, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Show notification after given delay
+     * @param ui UI where notification is shown
+     * @param notification Notification shown
+     * @param delay Delay before notification is shown
+     * @param unit Unit of delay
+     * @return Handle that can be used to cancel the notification
+     */
+    public Handle showAfter(UI ui, NotifyItem notification, long delay, TimeUnit unit) {
+        return schedule(ui, notification, unit.toNanos(delay), 0L);
+    }
+
+    /**
+     * Show notification repeatedly until cancelled, or until UI is detached
+     * @param ui UI where notification is shown
+     * @param notification Notification shown
+     * @param initialDelay Delay before notification is shown first time
+     * @param period Period between notifications
+     * @param unit Unit of delay and period
+     * @return Handle that can be used to cancel the notification
+     */
+    public Handle showEvery(UI ui, NotifyItem notification, long initialDelay, long period, TimeUnit unit) {
+        if(period <= 0) {
+            throw new IllegalArgumentException("Invalid period " + period);
+        }
+        return schedule(ui, notification, unit.toNanos(initialDelay), Math.max(tickNanos, unit.toNanos(period)));
+    }
+
+    /**
+     * Run task in scheduler thread after given delay. Task must be quick, eg. schedule UI access.
+     * @param ui UI task is related to
+     * @param task Task run
+     * @param delay Delay before task is run
+     * @param unit Unit of delay
+     * @return Handle that can be used to cancel the task
+     */
+    Handle runAfter(UI ui, Runnable task, long delay, TimeUnit unit) {
+        return schedule(ui, null, Objects.requireNonNull(task), unit.toNanos(delay), 0L);
+    }
+
+    private Handle schedule(UI ui, NotifyItem notification, long delayNanos, long periodNanos) {
+        return schedule(ui, Objects.requireNonNull(notification), null, delayNanos, periodNanos);
+    }
+
+    private Handle schedule(UI ui, NotifyItem notification, Runnable task, long delayNanos, long periodNanos) {
+        if(ui == null) {
+            throw new NotifyUINotResolvedException();
+        }
+        if(delayNanos < 0) {
+            throw new IllegalArgumentException("Invalid delay " + delayNanos);
+        }
+        start();
+        Timeout timeout = new Timeout(ui, notification, task, System.nanoTime() - startNanos + delayNanos,
+                periodNanos);
+        scheduledCount.incrementAndGet();
+        added.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get amount of scheduled notifications, recurring notifications are counted once
+     * @return Amount of notifications waiting to be shown
+     */
+    public int getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * Stop scheduler thread. Notifications not yet shown are dropped. If this is the default instance, next
+     * {@link #getDefault()} creates a new one.
+     */
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            shutdown = true;
+            if(worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    private void start() {
+        if(shutdown) {
+            throw new IllegalStateException("Scheduler has been shut down");
+        } else if(worker != null) {
+            return;
+        }
+        synchronized (lifecycleLock) {
+            if(shutdown) {
+                throw new IllegalStateException("Scheduler has been shut down");
+            }
+            if(worker == null) {
+                startNanos = System.nanoTime();
+                worker = new Thread(this::run, "notify-scheduler");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+    }
+
+    private void run() {
+        Map<UI, List<NotifyItem>> expired = new LinkedHashMap<>();
+        List<Runnable> tasks = new ArrayList<>();
+        List<Timeout> rescheduled = new ArrayList<>();
+        while(!shutdown) {
+            if(!waitForNextTick()) {
+                break;
+            }
+            removeCancelled();
+            long nowMillis = System.currentTimeMillis();
+            transferAdded(nowMillis);
+            wheel[(int) (tick & mask)].expire(expired, tasks, rescheduled, nowMillis);
+            for(Timeout timeout : rescheduled) {
+                place(timeout, tick + 1);
+            }
+            rescheduled.clear();
+            dispatch(expired);
+            runTasks(tasks);
+            ++tick;
+        }
+    }
+
+    private boolean waitForNextTick() {
+        long deadline = (tick + 1) * tickNanos;
+        while(true) {
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if(sleepNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if(shutdown) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void transferAdded(long nowMillis) {
+        // Bounded so that a flood of new timers can not starve expiration
+        for(int i = 0; i < 100000; ++i) {
+            Timeout timeout = added.poll();
+            if(timeout == null) {
+                break;
+            }
+            if(timeout.state.get() != STATE_SCHEDULED) {
+                continue;
+            } else if(timeout.isExpired(nowMillis)) {
+                timeout.discard();
+            } else {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    private void place(Timeout timeout, long earliestTick) {
+        // Timers already late go to the earliest bucket still to be processed. Rounds are counted from the earliest
+        // tick, as the bucket is next visited at or after it.
+        long targetTick = Math.max(timeout.deadlineNanos / tickNanos, earliestTick);
+        timeout.remainingRounds = (targetTick - earliestTick) / wheel.length;
+        wheel[(int) (targetTick & mask)].add(timeout);
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null) {
+            if(timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void dispatch(Map<UI, List<NotifyItem>> expired) {
+        for(Map.Entry<UI, List<NotifyItem>> entry : expired.entrySet()) {
+            try {
+                dispatcher.dispatch(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to show scheduled notification", e);
+            }
+        }
+        expired.clear();
+    }
+
+    private void runTasks(List<Runnable> tasks) {
+        for(Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to run scheduled task", e);
+            }
+        }
+        tasks.clear();
+    }
+
+    private static void dispatchToNotify(UI ui, List<NotifyItem> notifications) {
+        if(!ui.isAttached()) {
+            return;
+        }
+        // Only queued on this thread, UI access is requested by access thread (see AccessExecutor), and all
+        // notifications of the tick get drained by single UI access
+        notifications.forEach(notification -> Notify.show(ui, notification));
+    }
+
+    private class Timeout implements Handle {
+        // Far future timers do not keep UIs alive
+        private final WeakReference<UI> ui;
+        private final NotifyItem notification;
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(STATE_SCHEDULED);
+        private long deadlineNanos;
+        private long remainingRounds;
+
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(UI ui, NotifyItem notification, Runnable task, long deadlineNanos, long periodNanos) {
+            this.ui = new WeakReference<>(ui);
+            this.notification = notification;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if(!state.compareAndSet(STATE_SCHEDULED, STATE_CANCELLED)) {
+                return false;
+            }
+            scheduledCount.decrementAndGet();
+            cancelled.offer(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        private boolean isRecurring() {
+            return periodNanos > 0;
+        }
+
+        private boolean isExpired(long nowMillis) {
+            return notification != null && notification.isExpired(nowMillis);
+        }
+
+        /**
+         * Mark timeout done when it will not fire anymore
+         */
+        private void finish() {
+            if(state.compareAndSet(STATE_SCHEDULED, STATE_EXPIRED)) {
+                scheduledCount.decrementAndGet();
+            }
+        }
+
+        /**
+         * Drop timeout of expired notification, counted once also when recurring
+         */
+        private void discard() {
+            if(state.compareAndSet(STATE_SCHEDULED, STATE_EXPIRED)) {
+                scheduledCount.decrementAndGet();
+                Notify.getMetrics().notificationDropped(NotifyMetrics.DropReason.EXPIRED);
+            }
+        }
+    }
+
+    private class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if(head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expire(Map<UI, List<NotifyItem>> expired, List<Runnable> tasks, List<Timeout> rescheduled,
+                long nowMillis) {
+            Timeout timeout = head;
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(timeout.state.get() != STATE_SCHEDULED) {
+                    remove(timeout);
+                } else if(timeout.remainingRounds <= 0 && timeout.isExpired(nowMillis)) {
+                    // Not shown, and not rescheduled when recurring
+                    remove(timeout);
+                    timeout.discard();
+                } else if(timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    UI ui = timeout.ui.get();
+                    if(ui == null) {
+                        // UI was garbage collected before timer was due
+                        timeout.finish();
+                        timeout = next;
+                        continue;
+                    }
+                    if(timeout.task != null) {
+                        tasks.add(timeout.task);
+                    } else {
+                        expired.computeIfAbsent(ui, key -> new ArrayList<>()).add(timeout.notification);
+                    }
+                    if(timeout.isRecurring() && dispatcher.isAlive(ui)) {
+                        timeout.deadlineNanos += timeout.periodNanos;
+                        rescheduled.add(timeout);
+                    } else {
+                        timeout.finish();
+                    }
+                } else {
+                    --timeout.remainingRounds;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if(timeout.bucket != this) {
+                return;
+            }
+            if(timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if(timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.next = null;
+            timeout.previous = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * OutboxPolicy.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+/**
+ * What is done when notification is queued to full outbox of UI. Notifications of lower priority make room for
+ * notifications of higher priority, notifications of higher priority are never dropped for lower ones.
+ */
+public enum OutboxPolicy {
+    /** Oldest queued notification of the lowest priority is dropped to make room */
+    DROP_OLDEST,
+    /** New notification is dropped, unless newest queued notification of lower priority can be dropped instead */
+    DROP_NEWEST,
+    /** Queued notifications of same or lower priority are dropped, only the new one is kept */
+    COLLAPSE
+}
@@ -0,0 +1,302 @@
+/**
+ * PendingNotifications.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded table of notifications waiting for client to report them handled. Uses open addressing with primitive int
+ * keys. Notification ids are handed out in increasing order, so the oldest entry is always the one with lowest id, and
+ * expired or overflowing entries can be evicted from that end.
+ */
+class PendingNotifications implements Serializable {
+
+    /**
+     * Called for every entry removed without client reporting it handled
+     */
+    interface EvictionListener extends Serializable {
+        void onEvicted(int id, NotifyItem notification);
+    }
+
+    /**
+     * Source of monotonic time in milliseconds
+     */
+    interface Clock extends Serializable {
+        long currentMs();
+    }
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private final EvictionListener evictionListener;
+    private final Clock clock;
+
+    private int[] keys;
+    private NotifyItem[] items;
+    private long[] createdMs;
+    private int mask;
+    private int size = 0;
+
+    private int lowestId = 1;
+    private int highestId = 0;
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private long ttlMs = DEFAULT_TTL_MS;
+
+    private long expiredCount = 0;
+    private long overflowCount = 0;
+    private long handledCount = 0;
+
+    PendingNotifications(EvictionListener evictionListener) {
+        this(evictionListener, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    PendingNotifications(EvictionListener evictionListener, Clock clock) {
+        this.evictionListener = evictionListener;
+        this.clock = clock;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        items = new NotifyItem[capacity];
+        createdMs = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int slotOf(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int indexOf(int id) {
+        int slot = slotOf(id, mask);
+        while(keys[slot] != FREE) {
+            if(keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Add notification to table. Expired and overflowing entries are evicted before adding.
+     * @param id Id of notification, must be positive and larger than ids added before
+     * @param notification Notification
+     */
+    void put(int id, NotifyItem notification) {
+        if(id <= FREE) {
+            throw new IllegalArgumentException("Invalid notification id " + id);
+        }
+        long now = clock.currentMs();
+        evictExpired(now);
+        while(size >= maxSize) {
+            evictOldest();
+            ++overflowCount;
+        }
+
+        if((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int slot = slotOf(id, mask);
+        while(keys[slot] != FREE && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if(keys[slot] == FREE) {
+            ++size;
+        }
+        keys[slot] = id;
+        items[slot] = notification;
+        createdMs[slot] = now;
+        if(id > highestId) {
+            highestId = id;
+        }
+    }
+
+    /**
+     * Get notification
+     * @param id Id of notification
+     * @return Notification or null if not pending (handled or evicted)
+     */
+    NotifyItem get(int id) {
+        int slot = indexOf(id);
+        return slot < 0 ? null : items[slot];
+    }
+
+    /**
+     * Replace notification of pending entry, used when tagged notification is updated in place. Entry keeps its id and
+     * creation time, so ordering by id stays valid and updated entry still expires by TTL of the first show.
+     * @param id Id of notification
+     * @param notification New notification
+     * @return true if replaced, false if entry was not pending anymore
+     */
+    boolean replace(int id, NotifyItem notification) {
+        int slot = indexOf(id);
+        if(slot < 0) {
+            return false;
+        }
+        items[slot] = notification;
+        return true;
+    }
+
+    /**
+     * Remove notification reported handled by client
+     * @param id Id of notification
+     * @return Notification removed or null if it was not pending
+     */
+    NotifyItem remove(int id) {
+        int slot = indexOf(id);
+        if(slot < 0) {
+            return null;
+        }
+        NotifyItem removed = items[slot];
+        removeAt(slot);
+        ++handledCount;
+        return removed;
+    }
+
+    /**
+     * Evict entries that have been pending longer than TTL
+     */
+    void evictExpired() {
+        evictExpired(clock.currentMs());
+    }
+
+    private void evictExpired(long now) {
+        while(size > 0) {
+            int slot = oldestSlot();
+            if(now - createdMs[slot] < ttlMs) {
+                break;
+            }
+            evictAt(slot);
+            ++expiredCount;
+        }
+    }
+
+    private void evictOldest() {
+        evictAt(oldestSlot());
+    }
+
+    private int oldestSlot() {
+        int slot;
+        while((slot = indexOf(lowestId)) < 0) {
+            ++lowestId;
+        }
+        return slot;
+    }
+
+    private void evictAt(int slot) {
+        int id = keys[slot];
+        NotifyItem notification = items[slot];
+        removeAt(slot);
+        evictionListener.onEvicted(id, notification);
+    }
+
+    /**
+     * Evict all entries, used when UI is detached
+     */
+    void clear() {
+        while(size > 0) {
+            evictOldest();
+        }
+    }
+
+    private void removeAt(int slot) {
+        int gap = slot;
+        int i = (slot + 1) & mask;
+        // Backward shift deletion keeps probe sequences intact without tombstones
+        while(keys[i] != FREE) {
+            int home = slotOf(keys[i], mask);
+            if(((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                items[gap] = items[i];
+                createdMs[gap] = createdMs[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = FREE;
+        items[gap] = null;
+        --size;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        NotifyItem[] oldItems = items;
+        long[] oldCreated = createdMs;
+        allocate(capacity);
+        for(int i = 0; i < oldKeys.length; ++i) {
+            if(oldKeys[i] != FREE) {
+                int slot = slotOf(oldKeys[i], mask);
+                while(keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                items[slot] = oldItems[i];
+                createdMs[slot] = oldCreated[i];
+            }
+        }
+    }
+
+    void setMaxSize(int maxSize) {
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("Invalid max size " + maxSize);
+        }
+        this.maxSize = maxSize;
+        while(size > maxSize) {
+            evictOldest();
+            ++overflowCount;
+        }
+    }
+
+    void setTtlMs(long ttlMs) {
+        if(ttlMs < 1) {
+            throw new IllegalArgumentException("Invalid TTL " + ttlMs);
+        }
+        this.ttlMs = ttlMs;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getTtlMs() {
+        return ttlMs;
+    }
+
+    long getExpiredCount() {
+        return expiredCount;
+    }
+
+    long getOverflowCount() {
+        return overflowCount;
+    }
+
+    long getHandledCount() {
+        return handledCount;
+    }
+}
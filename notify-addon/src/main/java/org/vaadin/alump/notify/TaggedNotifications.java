@@ -0,0 +1,208 @@
+/**
+ * TaggedNotifications.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonValue;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Live tagged notifications of one UI. Each tag has single entry holding values last sent to client, so updates of
+ * the same tag take constant memory and only changed values are sent. Not thread safe, used while holding the session
+ * lock.
+ */
+class TaggedNotifications implements Serializable {
+
+    /**
+     * Live notification of a tag
+     */
+    static class Entry implements Serializable {
+        private final String tag;
+        private final int id;
+        private NotifyItem item;
+        private String iconRes;
+        private boolean dirty = false;
+
+        // Values last sent to client
+        private String sentTitle;
+        private String sentBody;
+        private String sentIconRes;
+        private Integer sentTimeoutMs;
+        private boolean sentClickable;
+
+        private Entry(String tag, int id, NotifyItem item, String iconRes) {
+            this.tag = tag;
+            this.id = id;
+            this.item = item;
+            this.iconRes = iconRes;
+            markSent();
+        }
+
+        int getId() {
+            return id;
+        }
+
+        private void markSent() {
+            sentTitle = item.getTitle();
+            sentBody = item.getBodyOrNull();
+            sentIconRes = iconRes;
+            sentTimeoutMs = item.getTimeoutMsOrNull();
+            sentClickable = item.getClickListenerOrNull() != null;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Entry> dirty = new ArrayList<>();
+
+    /**
+     * Get live entry of tag
+     * @param tag Tag
+     * @return Entry or null if there is no live notification with the tag
+     */
+    Entry get(String tag) {
+        return entries.get(tag);
+    }
+
+    /**
+     * Register notification sent with all its values
+     * @param tag Tag of notification
+     * @param id Id of notification
+     * @param item Notification
+     * @param iconRes Resource key of icon sent
+     */
+    void add(String tag, int id, NotifyItem item, String iconRes) {
+        entries.put(tag, new Entry(tag, id, item, iconRes));
+    }
+
+    /**
+     * Update live notification, changes are sent with next {@link #encodeUpdates()}
+     * @param entry Entry of tag
+     * @param item New notification
+     * @param iconRes Resource key of new icon
+     */
+    void update(Entry entry, NotifyItem item, String iconRes) {
+        entry.item = item;
+        entry.iconRes = iconRes;
+        if(!entry.dirty) {
+            entry.dirty = true;
+            dirty.add(entry);
+        }
+    }
+
+    /**
+     * Remove entry when its notification is not live anymore
+     * @param id Id of notification
+     * @param item Notification
+     */
+    void remove(int id, NotifyItem item) {
+        String tag = item.getTagOrNull();
+        if(tag == null) {
+            return;
+        }
+        Entry entry = entries.get(tag);
+        if(entry != null && entry.id == id) {
+            entries.remove(tag);
+        }
+    }
+
+    boolean hasUpdates() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Encode changes of updated entries, see {@link EncodedNotification} for layout
+     * @return Encoded updates, empty if nothing changed
+     */
+    JsonArray encodeUpdates() {
+        JsonArray updates = Json.createArray();
+        for(Entry entry : dirty) {
+            entry.dirty = false;
+            if(entries.get(entry.tag) != entry) {
+                continue;
+            }
+            JsonArray update = encodeUpdate(entry);
+            if(update != null) {
+                updates.set(updates.length(), update);
+            }
+            entry.markSent();
+        }
+        dirty.clear();
+        return updates;
+    }
+
+    private static JsonArray encodeUpdate(Entry entry) {
+        NotifyItem item = entry.item;
+        JsonArray update = Json.createArray();
+        update.set(EncodedNotification.UPDATE_ID, entry.id);
+        // Placeholder, array must be filled in order
+        update.set(EncodedNotification.UPDATE_CHANGED, 0);
+        int changed = 0;
+        int index = EncodedNotification.UPDATE_VALUES;
+        if(!Objects.equals(entry.sentTitle, item.getTitle())) {
+            changed |= EncodedNotification.CHANGED_TITLE;
+            update.set(index++, encode(item.getTitle()));
+        }
+        if(!Objects.equals(entry.sentBody, item.getBodyOrNull())) {
+            changed |= EncodedNotification.CHANGED_BODY;
+            update.set(index++, encode(item.getBodyOrNull()));
+        }
+        if(!Objects.equals(entry.sentIconRes, entry.iconRes)) {
+            changed |= EncodedNotification.CHANGED_ICON_RES;
+            update.set(index++, encode(entry.iconRes));
+        }
+        if(!Objects.equals(entry.sentTimeoutMs, item.getTimeoutMsOrNull())) {
+            changed |= EncodedNotification.CHANGED_TIMEOUT_MS;
+            Integer timeoutMs = item.getTimeoutMsOrNull();
+            update.set(index++, timeoutMs == null ? Json.createNull() : Json.create(timeoutMs));
+        }
+        boolean clickable = item.getClickListenerOrNull() != null;
+        if(entry.sentClickable != clickable) {
+            changed |= EncodedNotification.CHANGED_HAS_CLICK_LISTENER;
+            update.set(index, clickable);
+        }
+        if(changed == 0 && !item.isRenotify()) {
+            return null;
+        }
+        if(item.isRenotify()) {
+            changed |= EncodedNotification.RENOTIFY_FLAG;
+        }
+        update.set(EncodedNotification.UPDATE_CHANGED, changed);
+        return update;
+    }
+
+    private static JsonValue encode(String value) {
+        return value == null ? Json.createNull() : Json.create(value);
+    }
+
+    void clear() {
+        entries.clear();
+        dirty.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
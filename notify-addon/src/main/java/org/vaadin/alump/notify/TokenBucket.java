@@ -0,0 +1,102 @@
+/**
+ * TokenBucket.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket used to rate limit notifications. Bucket refills at given rate and holds at most burst
+ * tokens. Whole state is a single time value updated with compare-and-set, so any amount of threads can take tokens
+ * without locking. State is not serialized, deserialized bucket starts full.
+ */
+public class TokenBucket implements Serializable {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    // Time when bucket will be full again, tokens are taken by moving it forward by one interval
+    private final transient AtomicLong fullAt;
+
+    /**
+     * Create new token bucket, initially full
+     * @param permitsPerSecond Rate of refill in tokens per second
+     * @param burst Maximum amount of tokens in bucket
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if(!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+            throw new IllegalArgumentException("Invalid rate " + permitsPerSecond);
+        }
+        if(burst < 1) {
+            throw new IllegalArgumentException("Invalid burst " + burst);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        toleranceNanos = (burst - 1) * intervalNanos;
+        fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take token if available
+     * @return true if token was taken
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime()) == 0L;
+    }
+
+    /**
+     * Take token if available
+     * @param nowNanos Current System.nanoTime
+     * @return 0 if token was taken, otherwise nanoseconds until next token is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while(true) {
+            long current = fullAt.get();
+            long start = current - nowNanos > 0 ? current : nowNanos;
+            long wait = start - nowNanos - toleranceNanos;
+            if(wait > 0) {
+                return wait;
+            }
+            if(fullAt.compareAndSet(current, start + intervalNanos)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Return token taken, used when notification was not sent after all
+     */
+    void release() {
+        fullAt.addAndGet(-intervalNanos);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    private Object readResolve() {
+        return new TokenBucket(permitsPerSecond, burst);
+    }
+}
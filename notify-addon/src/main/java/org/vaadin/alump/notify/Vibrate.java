@@ -24,8 +24,7 @@ import org.vaadin.alump.notify.client.share.VibrateClientRpc;
 import org.vaadin.alump.notify.client.share.VibrateServerRpc;
 import org.vaadin.alump.notify.exceptions.VibrateUINotResolvedException;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -33,7 +32,9 @@ import java.util.Optional;
  */
 public class Vibrate extends AbstractExtension {
 
-    private Boolean clientSupport = null;
+    private static final ExtensionRegistry<Vibrate> registry = new ExtensionRegistry<>(Vibrate.class);
+
+    private volatile Boolean clientSupport = null;
 
     private VibrateServerRpc serverRpc = new VibrateServerRpc() {
         @Override
@@ -48,6 +49,18 @@ public class Vibrate extends AbstractExtension {
         extend(ui);
     }
 
+    @Override
+    public void attach() {
+        super.attach();
+        registry.register(getUI(), this);
+    }
+
+    @Override
+    public void detach() {
+        registry.unregister(getUI(), this);
+        super.detach();
+    }
+
     protected static Vibrate get() throws VibrateUINotResolvedException {
         UI ui = UI.getCurrent();
         if(ui == null) {
@@ -62,15 +75,25 @@ public class Vibrate extends AbstractExtension {
      * @return Instance of Vibrare
      */
     protected static Vibrate get(UI ui) {
-        return ui.getExtensions().stream().filter(e -> e instanceof Vibrate).map(e -> (Vibrate)e).findFirst()
-                .orElseGet(() -> new Vibrate(ui));
+        Vibrate instance = registry.get(ui);
+        return instance != null ? instance : new Vibrate(ui);
     }
 
     /**
-     * Vibrate Pattern
+     * Vibrate Pattern. Pattern is compiled to the array format of navigator.vibrate, so the browser plays it with a
+     * single call. Adjacent steps of same kind are merged, and compiled array is cached until pattern is modified, so
+     * same pattern can be vibrated again without compiling it again.
      */
     public static class Pattern {
-        private final List<VibrateClientRpc.VibrateStep> steps = new LinkedList<VibrateClientRpc.VibrateStep>();
+        /** Longest single vibrate or pause browsers accept, in milliseconds */
+        public static final int MAX_STEP_MS = 10000;
+        /** Longest pattern browsers accept, in steps */
+        public static final int MAX_STEPS = 99;
+
+        // Alternating vibrate and pause lengths, starting with vibrate
+        private int[] steps = new int[8];
+        private int size = 0;
+        private int[] compiled;
 
         public Pattern() {
 
@@ -101,20 +124,72 @@ public class Vibrate extends AbstractExtension {
          * @return Pattern (for piping command)
          */
         public Pattern add(int millisecs, boolean vibrate) {
-            VibrateClientRpc.VibrateStep step = new VibrateClientRpc.VibrateStep();
-            step.millisecs = millisecs;
-            step.vibrate = vibrate;
-            steps.add(step);
-
+            if(millisecs < 0) {
+                throw new IllegalArgumentException("Negative milliseconds value " + millisecs + " not accepted");
+            }
+            if(millisecs == 0) {
+                return this;
+            }
+            compiled = null;
+            boolean lastIsVibrate = size % 2 == 1;
+            if(size > 0 && lastIsVibrate == vibrate) {
+                steps[size - 1] += millisecs;
+            } else {
+                if(size == 0 && !vibrate) {
+                    // Pattern always starts with vibrate
+                    append(0);
+                }
+                append(millisecs);
+            }
             return this;
         }
 
+        private void append(int millisecs) {
+            if(size == steps.length) {
+                steps = Arrays.copyOf(steps, size * 2);
+            }
+            steps[size++] = millisecs;
+        }
+
+        /**
+         * Get pattern in the array format of navigator.vibrate
+         * @return Copy of compiled pattern
+         */
+        public int[] toArray() {
+            return compile().clone();
+        }
+
+        /**
+         * Get compiled pattern, cached until pattern is modified
+         * @return Compiled pattern, must not be modified
+         */
+        int[] compile() {
+            if(compiled == null) {
+                compiled = compile(steps, size);
+            }
+            return compiled;
+        }
+
         /**
-         * Get steps in list
-         * @return
+         * Compile steps to browser limits. Steps longer than browser accepts are split with zero length steps of other
+         * kind between, pattern is truncated to maximum amount of steps, and trailing pause is dropped.
          */
-        protected List<VibrateClientRpc.VibrateStep> getSteps() {
-            return steps;
+        static int[] compile(int[] steps, int size) {
+            int[] result = new int[MAX_STEPS];
+            int length = 0;
+            for(int i = 0; i < size && length < MAX_STEPS; ++i) {
+                int remaining = steps[i];
+                while(remaining > MAX_STEP_MS && length + 2 < MAX_STEPS) {
+                    result[length++] = MAX_STEP_MS;
+                    result[length++] = 0;
+                    remaining -= MAX_STEP_MS;
+                }
+                result[length++] = Math.min(remaining, MAX_STEP_MS);
+            }
+            if(length % 2 == 0 && length > 0) {
+                --length;
+            }
+            return Arrays.copyOf(result, length);
         }
     }
 
@@ -148,7 +223,7 @@ public class Vibrate extends AbstractExtension {
      * @param pattern Pattern vibrated
      */
     public static void vibrate(Pattern pattern) {
-        get().requestVibrate(pattern.getSteps());
+        get().requestVibrate(pattern.compile());
     }
 
     /**
@@ -157,7 +232,7 @@ public class Vibrate extends AbstractExtension {
      * @param pattern Pattern vibrated
      */
     public static void vibrate(UI ui, Pattern pattern) {
-        get(ui).requestVibrate(pattern.getSteps());
+        get(ui).requestVibrate(pattern.compile());
     }
 
     /**
@@ -168,18 +243,20 @@ public class Vibrate extends AbstractExtension {
         if(millisecs < 0) {
             throw new IllegalArgumentException("Negative milliseconds value " + millisecs + " not accepted");
         }
+        Notify.getMetrics().vibrateRequested();
         getRpcProxy(VibrateClientRpc.class).vibrate(millisecs);
     }
 
     /**
      * Request client to vibrate
-     * @param steps
+     * @param pattern Compiled pattern
      */
-    protected void requestVibrate(List<VibrateClientRpc.VibrateStep> steps) {
-        if(steps.isEmpty()) {
+    protected void requestVibrate(int[] pattern) {
+        if(pattern.length == 0) {
             return;
         }
-        getRpcProxy(VibrateClientRpc.class).vibratePattern(steps);
+        Notify.getMetrics().vibrateRequested();
+        getRpcProxy(VibrateClientRpc.class).vibratePattern(pattern);
     }
 
     private Optional<Boolean> instanceIsSupported() {
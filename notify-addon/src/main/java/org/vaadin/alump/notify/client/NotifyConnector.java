@@ -1,28 +1,62 @@
 package org.vaadin.alump.notify.client;
 
 import com.vaadin.client.ServerConnector;
+import com.vaadin.client.communication.StateChangeEvent;
 import com.vaadin.client.communication.ServerRpcQueue;
 import com.vaadin.client.extensions.AbstractExtensionConnector;
 
 import com.vaadin.shared.ui.Connect;
+import elemental.json.JsonArray;
 import org.vaadin.alump.notify.Notify;
 import org.vaadin.alump.notify.client.share.*;
+import org.vaadin.alump.notify.client.util.AcknowledgementBuffer;
 import org.vaadin.alump.notify.client.util.ClientNotification;
 import org.vaadin.alump.notify.client.util.NotifyUtilListener;
 import org.vaadin.alump.notify.client.util.NotifyUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Connector for Notify extension class
  */
 @Connect(Notify.class)
 public class NotifyConnector extends AbstractExtensionConnector implements NotifyUtilListener {
 
+    private final AcknowledgementBuffer acknowledgements = new AcknowledgementBuffer(
+            (ids, outcomes) -> getRpcProxy(NotifyServerRpc.class).onAcknowledgements(ids, outcomes));
+
     private NotifyClientRpc clientRpc = new NotifyClientRpc() {
         @Override
         public void showNotification(SharedNotification notification) {
             NotifyUtil.show(new ClientNotification(NotifyConnector.this, notification));
         }
 
+        @Override
+        public void showNotifications(List<SharedNotification> notifications) {
+            List<ClientNotification> batch = new ArrayList<>(notifications.size());
+            for(SharedNotification notification : notifications) {
+                batch.add(new ClientNotification(NotifyConnector.this, notification));
+            }
+            NotifyUtil.show(batch);
+        }
+
+        @Override
+        public void showEncodedNotifications(JsonArray notifications) {
+            List<ClientNotification> batch = new ArrayList<>(notifications.length());
+            for(int i = 0; i < notifications.length(); ++i) {
+                batch.add(new ClientNotification(NotifyConnector.this, notifications.getArray(i)));
+            }
+            NotifyUtil.show(batch);
+        }
+
+        @Override
+        public void updateNotifications(JsonArray updates) {
+            for(int i = 0; i < updates.length(); ++i) {
+                NotifyUtil.update(NotifyConnector.this, updates.getArray(i));
+            }
+        }
+
         @Override
         public void askPermission() {
             NotifyUtil.askPermission();
@@ -38,6 +72,7 @@ public class NotifyConnector extends AbstractExtensionConnector implements Notif
 
     @Override
     public void onUnregister() {
+        acknowledgements.flush();
         NotifyUtil.removeListener(this);
         super.onUnregister();
     }
@@ -52,6 +87,17 @@ public class NotifyConnector extends AbstractExtensionConnector implements Notif
         return (NotifySharedState)super.getState();
     }
 
+    @Override
+    public void onStateChanged(StateChangeEvent stateChangeEvent) {
+        super.onStateChanged(stateChangeEvent);
+        if(getState().tabCoordination) {
+            NotifyUtil.enableTabCoordination();
+        }
+        if(stateChangeEvent.hasPropertyChanged("maxVisible")) {
+            NotifyUtil.setMaxVisible(getState().maxVisible);
+        }
+    }
+
 
     @Override
     public void onNewClientNotifyState(NotifyState state) {
@@ -59,20 +105,25 @@ public class NotifyConnector extends AbstractExtensionConnector implements Notif
     }
 
     @Override
-    public void onNotificationHandled(int id) {
-        getRpcProxy(NotifyServerRpc.class).onNotificationHandled(id);
+    public void onAcknowledgement(int id, int outcome) {
+        acknowledgements.add(id, outcome);
+        if(outcome == Acknowledgement.CLICKED) {
+            // Clicks are sent immediately, as optimization might delay call as user is clicking outside browser window
+            acknowledgements.flush();
+            getConnection().getMessageSender().sendInvocationsToServer();
+        }
     }
 
     @Override
-    public void onNotificationClicked(int id) {
-        debug("Calling rpc proxy");
-        getRpcProxy(NotifyServerRpc.class).onNotificationClicked(id);
-        // Calling flush here as optimization might delay call as user is clicking outside browser window
-        getConnection().getMessageSender().sendInvocationsToServer();
+    public void onNotificationDisplayed(int id, double displayedAt, int queueMs) {
+        getRpcProxy(NotifyServerRpc.class).onNotificationDisplayed(id, displayedAt, queueMs);
     }
 
-    private static native void debug(String message)
-    /*-{
-        console.log(message);
-    }-*/;
+    @Override
+    public void onTracedNotificationClicked(int id, double clickedAt) {
+        // Outcomes collected before the click are sent first, keeping the order
+        acknowledgements.flush();
+        getRpcProxy(NotifyServerRpc.class).onTracedNotificationClicked(id, clickedAt);
+        getConnection().getMessageSender().sendInvocationsToServer();
+    }
 }
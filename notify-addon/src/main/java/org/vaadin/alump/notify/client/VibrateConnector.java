@@ -1,16 +1,13 @@
 package org.vaadin.alump.notify.client;
 
-import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayInteger;
 import com.vaadin.client.ServerConnector;
 import com.vaadin.client.extensions.AbstractExtensionConnector;
 import com.vaadin.shared.ui.Connect;
 import org.vaadin.alump.notify.client.share.VibrateClientRpc;
 import org.vaadin.alump.notify.client.share.VibrateServerRpc;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-
 @Connect(org.vaadin.alump.notify.Vibrate.class)
 public class VibrateConnector extends AbstractExtensionConnector {
 
@@ -26,9 +23,13 @@ public class VibrateConnector extends AbstractExtensionConnector {
         }
 
         @Override
-        public void vibratePattern(List<VibrateStep> steps) {
+        public void vibratePattern(int[] pattern) {
             if(IS_SUPPORTED) {
-                vibrateStep(new LinkedList<VibrateStep>(steps));
+                JsArrayInteger array = JavaScriptObject.createArray().cast();
+                for(int millisecs : pattern) {
+                    array.push(millisecs);
+                }
+                VibrateConnector.vibrate(array);
             }
         }
     };
@@ -70,20 +71,13 @@ public class VibrateConnector extends AbstractExtensionConnector {
         }
     }-*/;
 
-    private void vibrateStep(final Queue<VibrateClientRpc.VibrateStep> steps) {
-        VibrateClientRpc.VibrateStep next = steps.remove();
-        if(next.vibrate) {
-            vibrate(next.millisecs);
-        }
-        if(!steps.isEmpty()) {
-            Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
-                @Override
-                public boolean execute() {
-                    vibrateStep(steps);
-                    return false;
-                }
-            }, next.millisecs);
-        }
-    }
+    /**
+     * Call native with pattern, browser plays the whole pattern
+     * @param pattern Alternating vibrate and pause lengths
+     */
+    private static native void vibrate(JsArrayInteger pattern)
+    /*-{
+        navigator.vibrate(pattern);
+    }-*/;
 
 }
@@ -0,0 +1,25 @@
+package org.vaadin.alump.notify.client.share;
+
+/**
+ * Outcomes of notifications reported by client in batches, see {@link NotifyServerRpc#onAcknowledgements}
+ */
+public final class Acknowledgement {
+
+    /** Notification was closed by user or browser */
+    public static final int CLOSED = 0;
+    /** Notification was closed by its timeout */
+    public static final int TIMED_OUT = 1;
+    /** Notification could not be shown */
+    public static final int ERROR = 2;
+    /** Notification was clicked, it may still be open */
+    public static final int CLICKED = 3;
+    /** Notification was dropped from full display queue, it was never displayed */
+    public static final int DROPPED = 4;
+    /** Notification was replaced in display queue by newer one with same tag, it was never displayed */
+    public static final int COALESCED = 5;
+    /** Notification expired while waiting for permission or display slot, it was never displayed */
+    public static final int EXPIRED = 6;
+
+    private Acknowledgement() {
+    }
+}
@@ -0,0 +1,47 @@
+package org.vaadin.alump.notify.client.share;
+
+/**
+ * Layout of notifications sent as JSON arrays. Frozen notifications are sent this way, so their payload array can be
+ * built once and shared by all recipients, and property names are not written for every recipient. The array is
+ * still written to the response of each recipient.
+ */
+public final class EncodedNotification {
+
+    // Notification: [id, iconRes, payload, traceId, shownAt, ttlMs], optional values at the end may be left out
+    public static final int ID = 0;
+    public static final int ICON_RES = 1;
+    public static final int PAYLOAD = 2;
+    public static final int TRACE_ID = 3;
+    public static final int SHOWN_AT = 4;
+    // Remaining time to live in milliseconds, sent per recipient as payload is shared
+    public static final int TTL_MS = 5;
+
+    // Payload: [title, body, timeoutMs, hasClickListener, tag, renotify, dedupKey, priority], optional values at the end may be
+    // left out
+    public static final int TITLE = 0;
+    public static final int BODY = 1;
+    public static final int TIMEOUT_MS = 2;
+    public static final int HAS_CLICK_LISTENER = 3;
+    public static final int TAG = 4;
+    public static final int RENOTIFY = 5;
+    public static final int DEDUP_KEY = 6;
+    // Ordinal of NotifyPriority, left out when normal
+    public static final int PRIORITY = 7;
+
+    // Update of tagged notification: [id, changed, values of changed fields in order of the flags below]
+    public static final int UPDATE_ID = 0;
+    public static final int UPDATE_CHANGED = 1;
+    public static final int UPDATE_VALUES = 2;
+
+    // Flags of changed fields
+    public static final int CHANGED_TITLE = 1;
+    public static final int CHANGED_BODY = 1 << 1;
+    public static final int CHANGED_ICON_RES = 1 << 2;
+    public static final int CHANGED_TIMEOUT_MS = 1 << 3;
+    public static final int CHANGED_HAS_CLICK_LISTENER = 1 << 4;
+    // Flag without value, user is alerted again
+    public static final int RENOTIFY_FLAG = 1 << 5;
+
+    private EncodedNotification() {
+    }
+}
@@ -1,11 +1,33 @@
 package org.vaadin.alump.notify.client.share;
 
 import com.vaadin.shared.communication.ClientRpc;
+import elemental.json.JsonArray;
+
+import java.util.List;
 
 public interface NotifyClientRpc extends ClientRpc {
 
     void showNotification(SharedNotification notification);
 
+    /**
+     * Show all notifications queued for the UI during one request/push cycle
+     * @param notifications Notifications in order they were queued
+     */
+    void showNotifications(List<SharedNotification> notifications);
+
+    /**
+     * Show notifications encoded as arrays, see {@link EncodedNotification} for layout
+     * @param notifications Encoded notifications in order they were queued
+     */
+    void showEncodedNotifications(JsonArray notifications);
+
+    /**
+     * Update tagged notifications already shown, only changed fields are sent. See {@link EncodedNotification} for
+     * layout.
+     * @param updates Encoded updates
+     */
+    void updateNotifications(JsonArray updates);
+
     void askPermission();
 
 }
\ No newline at end of file
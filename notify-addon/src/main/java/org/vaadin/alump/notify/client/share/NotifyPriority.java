@@ -0,0 +1,8 @@
+package org.vaadin.alump.notify.client.share;
+
+/**
+ * Priority of notification. Client displays queued notifications of higher priority first.
+ */
+public enum NotifyPriority {
+    LOW, NORMAL, HIGH, URGENT;
+}
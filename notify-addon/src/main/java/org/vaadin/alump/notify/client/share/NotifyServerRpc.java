@@ -12,14 +12,25 @@ public interface NotifyServerRpc extends ServerRpc {
     void onClientStateUpdate(NotifyState state);
 
     /**
-     * Called when notification has been handled and it's resources can be released
-     * @param id ID of notification handled
+     * Called with outcomes of notifications collected on client. All outcomes except clicks mean notification has
+     * been handled and its resources can be released.
+     * @param ids IDs of notifications
+     * @param outcomes Outcome of each notification in ids, see {@link Acknowledgement}
      */
-    void onNotificationHandled(int id);
+    void onAcknowledgements(int[] ids, int[] outcomes);
 
     /**
-     * Called when notification is clicked
+     * Called when traced notification has been displayed by browser
+     * @param id ID of notification displayed
+     * @param displayedAt Browser time of display, epoch milliseconds
+     * @param queueMs Milliseconds notification waited on client before it was displayed
+     */
+    void onNotificationDisplayed(int id, double displayedAt, int queueMs);
+
+    /**
+     * Called when traced notification is clicked
      * @param id ID of notification clicked
+     * @param clickedAt Browser time of click, epoch milliseconds
      */
-    void onNotificationClicked(int id);
+    void onTracedNotificationClicked(int id, double clickedAt);
 }
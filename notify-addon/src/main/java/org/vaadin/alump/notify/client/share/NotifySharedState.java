@@ -8,4 +8,10 @@ public class NotifySharedState extends AbstractComponentState {
 
     public boolean closeOnClick = false;
 
+    /** If browser tabs coordinate so notifications with same de-duplication key are displayed only once */
+    public boolean tabCoordination = false;
+
+    /** Maximum amount of notifications displayed at once by the page, others wait in display queue */
+    public int maxVisible = 3;
+
 }
\ No newline at end of file
@@ -11,6 +11,17 @@ public class SharedNotification {
     public String soundRes = null;
     public boolean hasClickListener = false;
     public Integer timeoutMs = null;
+    /** Tag of notification, notification with same tag replaces the earlier one */
+    public String tag = null;
+    /** If user should be alerted again when notification replaces earlier one with same tag */
+    public boolean renotify = false;
+    /** De-duplication key, notification with same key is displayed only by one tab when tabs are coordinated */
+    public String dedupKey = null;
+    public NotifyPriority priority = NotifyPriority.NORMAL;
+    /** Correlation id of latency tracing, null if notification is not traced */
+    public String traceId = null;
+    /** Server time when notification was shown, epoch milliseconds. Only set when traced. */
+    public long shownAt = 0L;
 
     public SharedNotification() {
 
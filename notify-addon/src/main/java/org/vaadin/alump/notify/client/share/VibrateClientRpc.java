@@ -2,8 +2,6 @@ package org.vaadin.alump.notify.client.share;
 
 import com.vaadin.shared.communication.ClientRpc;
 
-import java.util.List;
-
 /**
  * ClientRpc of Vibrate
  */
@@ -11,10 +9,9 @@ public interface VibrateClientRpc extends ClientRpc {
 
     void vibrate(int millisecs);
 
-    void vibratePattern(List<VibrateStep> steps);
-
-    public static class VibrateStep {
-        public boolean vibrate = true;
-        public int millisecs = 100;
-    }
+    /**
+     * Vibrate pattern
+     * @param pattern Alternating vibrate and pause lengths in milliseconds, in format of navigator.vibrate
+     */
+    void vibratePattern(int[] pattern);
 }
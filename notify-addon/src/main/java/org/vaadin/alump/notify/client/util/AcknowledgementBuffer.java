@@ -0,0 +1,69 @@
+package org.vaadin.alump.notify.client.util;
+
+import com.google.gwt.user.client.Timer;
+
+import java.util.Arrays;
+
+/**
+ * Collects outcomes of notifications on client, so outcomes of many notifications are sent to server with single
+ * invocation. Outcomes are sent after a short delay from the first one collected, or immediately when flushed.
+ */
+public class AcknowledgementBuffer {
+
+    /**
+     * Sends collected outcomes to server
+     */
+    public interface Sender {
+        void send(int[] ids, int[] outcomes);
+    }
+
+    public static final int DEBOUNCE_MS = 100;
+
+    private final Sender sender;
+    private int[] ids = new int[16];
+    private int[] outcomes = new int[16];
+    private int size = 0;
+
+    private final Timer timer = new Timer() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public AcknowledgementBuffer(Sender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Add outcome, it will be sent with next flush
+     * @param id ID of notification
+     * @param outcome Outcome, see {@link org.vaadin.alump.notify.client.share.Acknowledgement}
+     */
+    public void add(int id, int outcome) {
+        if(size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            outcomes = Arrays.copyOf(outcomes, size * 2);
+        }
+        ids[size] = id;
+        outcomes[size] = outcome;
+        ++size;
+        if(!timer.isRunning()) {
+            timer.schedule(DEBOUNCE_MS);
+        }
+    }
+
+    /**
+     * Send collected outcomes now
+     */
+    public void flush() {
+        timer.cancel();
+        if(size == 0) {
+            return;
+        }
+        int[] sentIds = Arrays.copyOf(ids, size);
+        int[] sentOutcomes = Arrays.copyOf(outcomes, size);
+        size = 0;
+        sender.send(sentIds, sentOutcomes);
+    }
+}
@@ -1,12 +1,20 @@
 package org.vaadin.alump.notify.client.util;
 
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import elemental.json.JsonArray;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 import org.vaadin.alump.notify.client.NotifyConnector;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
 import org.vaadin.alump.notify.client.share.SharedNotification;
 
 /**
  * Client version of notification. Some values have been converted from Notification reserved from server.
  */
 public class ClientNotification {
+    private final NotifyUtilListener owner;
     private final int id;
     private final String title;
     private final String body;
@@ -15,8 +23,20 @@ public class ClientNotification {
     private final boolean clickable;
     private final Integer timeoutMs;
     private final boolean closeOnClick;
+    private final String traceId;
+    private final double receivedAt;
+    private final String tag;
+    private final boolean renotify;
+    private final String dedupKey;
+    private final int priority;
+    // Local time of expiry, 0 if notification does not expire
+    private final double expiresAt;
+    // Page wide id and native notification, assigned when shown
+    private int localId;
+    private JavaScriptObject nativeNotification;
 
     public ClientNotification(NotifyConnector connector, SharedNotification shared) {
+        owner = connector;
         id = shared.id;
         title = shared.title;
         body = shared.body;
@@ -33,12 +53,153 @@ public class ClientNotification {
         clickable = shared.hasClickListener;
         timeoutMs = shared.timeoutMs == null ? connector.getState().defaultTimeoutMs : shared.timeoutMs;
         closeOnClick = connector.getState().closeOnClick;
+        traceId = shared.traceId;
+        receivedAt = traceId == null ? 0 : Duration.currentTimeMillis();
+        tag = shared.tag;
+        renotify = shared.renotify;
+        dedupKey = shared.dedupKey;
+        priority = (shared.priority == null ? NotifyPriority.NORMAL : shared.priority).ordinal();
+        // Notifications that expire are sent encoded
+        expiresAt = 0;
     }
 
+    /**
+     * Create from notification encoded as array, see {@link EncodedNotification}
+     * @param connector Connector receiving the notification
+     * @param encoded Encoded notification
+     */
+    public ClientNotification(NotifyConnector connector, JsonArray encoded) {
+        JsonArray payload = encoded.getArray(EncodedNotification.PAYLOAD);
+        owner = connector;
+        id = (int) encoded.getNumber(EncodedNotification.ID);
+        title = isNull(payload, EncodedNotification.TITLE) ? null : payload.getString(EncodedNotification.TITLE);
+        body = isNull(payload, EncodedNotification.BODY) ? null : payload.getString(EncodedNotification.BODY);
+        if(isNull(encoded, EncodedNotification.ICON_RES)) {
+            iconUrl = null;
+        } else {
+            iconUrl = connector.getResourceUrl(encoded.getString(EncodedNotification.ICON_RES));
+        }
+        soundUrl = null;
+        clickable = payload.getBoolean(EncodedNotification.HAS_CLICK_LISTENER);
+        if(isNull(payload, EncodedNotification.TIMEOUT_MS)) {
+            timeoutMs = connector.getState().defaultTimeoutMs;
+        } else {
+            timeoutMs = (int) payload.getNumber(EncodedNotification.TIMEOUT_MS);
+        }
+        closeOnClick = connector.getState().closeOnClick;
+        traceId = isNull(encoded, EncodedNotification.TRACE_ID) ? null
+                : encoded.getString(EncodedNotification.TRACE_ID);
+        receivedAt = traceId == null ? 0 : Duration.currentTimeMillis();
+        tag = isNull(payload, EncodedNotification.TAG) ? null : payload.getString(EncodedNotification.TAG);
+        renotify = tag != null && payload.getBoolean(EncodedNotification.RENOTIFY);
+        dedupKey = isNull(payload, EncodedNotification.DEDUP_KEY) ? null
+                : payload.getString(EncodedNotification.DEDUP_KEY);
+        priority = isNull(payload, EncodedNotification.PRIORITY) ? NotifyPriority.NORMAL.ordinal()
+                : (int) payload.getNumber(EncodedNotification.PRIORITY);
+        expiresAt = isNull(encoded, EncodedNotification.TTL_MS) ? 0
+                : Duration.currentTimeMillis() + encoded.getNumber(EncodedNotification.TTL_MS);
+    }
+
+    /**
+     * Create updated version of tagged notification, see {@link EncodedNotification} for layout of update
+     * @param previous Notification updated
+     * @param connector Connector receiving the update
+     * @param update Encoded update with changed values
+     */
+    private ClientNotification(ClientNotification previous, NotifyConnector connector, JsonArray update) {
+        int changed = (int) update.getNumber(EncodedNotification.UPDATE_CHANGED);
+        int index = EncodedNotification.UPDATE_VALUES;
+        owner = previous.owner;
+        id = previous.id;
+        if((changed & EncodedNotification.CHANGED_TITLE) != 0) {
+            title = isNull(update, index) ? null : update.getString(index);
+            ++index;
+        } else {
+            title = previous.title;
+        }
+        if((changed & EncodedNotification.CHANGED_BODY) != 0) {
+            body = isNull(update, index) ? null : update.getString(index);
+            ++index;
+        } else {
+            body = previous.body;
+        }
+        if((changed & EncodedNotification.CHANGED_ICON_RES) != 0) {
+            iconUrl = isNull(update, index) ? null : connector.getResourceUrl(update.getString(index));
+            ++index;
+        } else {
+            iconUrl = previous.iconUrl;
+        }
+        soundUrl = previous.soundUrl;
+        if((changed & EncodedNotification.CHANGED_TIMEOUT_MS) != 0) {
+            timeoutMs = isNull(update, index) ? connector.getState().defaultTimeoutMs
+                    : Integer.valueOf((int) update.getNumber(index));
+            ++index;
+        } else {
+            timeoutMs = previous.timeoutMs;
+        }
+        if((changed & EncodedNotification.CHANGED_HAS_CLICK_LISTENER) != 0) {
+            clickable = update.getBoolean(index);
+        } else {
+            clickable = previous.clickable;
+        }
+        closeOnClick = previous.closeOnClick;
+        // Latency is traced only for the first show
+        traceId = null;
+        receivedAt = 0;
+        tag = previous.tag;
+        renotify = (changed & EncodedNotification.RENOTIFY_FLAG) != 0;
+        dedupKey = previous.dedupKey;
+        priority = previous.priority;
+        expiresAt = previous.expiresAt;
+    }
+
+    /**
+     * Apply update received from server
+     * @param connector Connector receiving the update
+     * @param update Encoded update
+     * @return Updated notification
+     */
+    public ClientNotification update(NotifyConnector connector, JsonArray update) {
+        return new ClientNotification(this, connector, update);
+    }
+
+    private static boolean isNull(JsonArray array, int index) {
+        if(index >= array.length()) {
+            return true;
+        }
+        JsonValue value = array.get(index);
+        return value == null || value.getType() == JsonType.NULL;
+    }
+
+    /**
+     * Get connector that received this notification, its events are reported only to it
+     * @return Owner of notification
+     */
+    public NotifyUtilListener getOwner() {
+        return owner;
+    }
+
+    /**
+     * Get id of notification, unique only within its owner
+     * @return Id given by server
+     */
     public int getId() {
         return id;
     }
 
+    int getLocalId() {
+        return localId;
+    }
+
+    void setShown(int localId, JavaScriptObject nativeNotification) {
+        this.localId = localId;
+        this.nativeNotification = nativeNotification;
+    }
+
+    JavaScriptObject getNativeNotification() {
+        return nativeNotification;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -66,4 +227,61 @@ public class ClientNotification {
     public Integer getTimeoutMs() {
         return timeoutMs;
     }
+
+    /**
+     * Get tag of notification
+     * @return Tag, null if notification is not tagged
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Check if user should be alerted again when this notification replaces earlier one with same tag
+     * @return true to alert again
+     */
+    public boolean isRenotify() {
+        return renotify;
+    }
+
+    /**
+     * Get de-duplication key of notification
+     * @return Key, null if notification is displayed by every tab receiving it
+     */
+    public String getDedupKey() {
+        return dedupKey;
+    }
+
+    /**
+     * Get priority of notification in display queue
+     * @return Ordinal of {@link NotifyPriority}, higher is displayed first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Check if notification has expired
+     * @param now Current time, {@link Duration#currentTimeMillis()}
+     * @return true if notification should not be displayed anymore
+     */
+    public boolean isExpired(double now) {
+        return expiresAt > 0 && expiresAt <= now;
+    }
+
+    /**
+     * Check if display and click times of notification should be reported to server
+     * @return true if notification is traced
+     */
+    public boolean isTraced() {
+        return traceId != null;
+    }
+
+    /**
+     * Get browser time when notification was received from server
+     * @return Epoch milliseconds, 0 if not traced
+     */
+    public double getReceivedAt() {
+        return receivedAt;
+    }
 }
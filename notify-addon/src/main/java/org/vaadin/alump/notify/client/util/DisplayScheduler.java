@@ -0,0 +1,293 @@
+package org.vaadin.alump.notify.client.util;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.user.client.Timer;
+import org.vaadin.alump.notify.client.share.Acknowledgement;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Display slots of the page. Browsers show only a few notifications at once and silently drop or replace the rest,
+ * so notifications over the limit wait in a bounded display queue, ordered by priority, and are opened as slots free
+ * up. Notification of high or urgent priority does not wait behind bulk ones, it takes over slot of the oldest
+ * visible notification of lower priority. Queued notification is replaced by newer one with same tag, and discarded
+ * if it expires before it gets a slot. Timeouts of all visible notifications run on one shared timer.
+ */
+class DisplayScheduler {
+
+    /**
+     * Opens and closes native notifications
+     */
+    interface Display {
+        /**
+         * Open native notification
+         * @param notification Notification opened
+         */
+        void open(ClientNotification notification);
+
+        /**
+         * Close native notification as timed out
+         * @param notification Notification closed
+         */
+        void timeout(ClientNotification notification);
+
+        /**
+         * Close native notification to free its slot for notification of higher priority
+         * @param notification Notification closed
+         */
+        void preempt(ClientNotification notification);
+
+        /**
+         * Report notification that will never be displayed
+         * @param notification Notification dropped
+         * @param outcome {@link Acknowledgement#DROPPED}, {@link Acknowledgement#COALESCED} or
+         *                {@link Acknowledgement#EXPIRED}
+         */
+        void dropped(ClientNotification notification, int outcome);
+    }
+
+    public static final int DEFAULT_MAX_VISIBLE = 3;
+    public static final int MAX_QUEUED = 100;
+    // Notification without timeout holds its slot at most this long, as browsers hide it to notification center
+    // without firing close event
+    public static final int MAX_SLOT_HOLD_MS = 20000;
+
+    /**
+     * Visible notification
+     */
+    private static class Slot {
+        private ClientNotification notification;
+        private double timeoutAt;
+        private double releaseAt;
+
+        private Slot(ClientNotification notification, double now) {
+            assign(notification, now);
+        }
+
+        private void assign(ClientNotification notification, double now) {
+            this.notification = notification;
+            Integer timeoutMs = notification.getTimeoutMs();
+            if(timeoutMs != null && timeoutMs > 0) {
+                timeoutAt = now + timeoutMs;
+                releaseAt = timeoutAt;
+            } else {
+                timeoutAt = 0;
+                releaseAt = now + MAX_SLOT_HOLD_MS;
+            }
+        }
+    }
+
+    private final Display display;
+    private final List<Slot> slots = new ArrayList<>();
+    // Ordered by priority, then by arrival
+    private final List<ClientNotification> queued = new ArrayList<>();
+    private int maxVisible = DEFAULT_MAX_VISIBLE;
+
+    private final Timer timer = new Timer() {
+        @Override
+        public void run() {
+            expire();
+        }
+    };
+
+    DisplayScheduler(Display display) {
+        this.display = display;
+    }
+
+    /**
+     * Define amount of display slots
+     * @param maxVisible Maximum amount of notifications visible at once
+     */
+    void setMaxVisible(int maxVisible) {
+        this.maxVisible = Math.max(1, maxVisible);
+        pump();
+    }
+
+    /**
+     * Open notification now if there is free slot, otherwise queue it
+     * @param notification Notification displayed
+     */
+    void submit(ClientNotification notification) {
+        if(notification.getTag() != null) {
+            coalesce(notification.getTag());
+        }
+        if(queued.isEmpty() && slots.size() < maxVisible) {
+            open(notification);
+            return;
+        }
+        if(preemptFor(notification)) {
+            open(notification);
+            return;
+        }
+        int index = queued.size();
+        while(index > 0 && queued.get(index - 1).getPriority() < notification.getPriority()) {
+            --index;
+        }
+        queued.add(index, notification);
+        if(queued.size() > MAX_QUEUED) {
+            // Lowest priority, newest
+            display.dropped(queued.remove(queued.size() - 1), Acknowledgement.DROPPED);
+        }
+    }
+
+    /**
+     * Free slot for notification of high or urgent priority that would be first in queue
+     * @param notification Notification waiting for slot
+     * @return true if slot was freed
+     */
+    private boolean preemptFor(ClientNotification notification) {
+        int priority = notification.getPriority();
+        if(priority <= NotifyPriority.NORMAL.ordinal()
+                || (!queued.isEmpty() && queued.get(0).getPriority() >= priority)) {
+            return false;
+        }
+        Slot victim = null;
+        for(Slot slot : slots) {
+            // Slots are in order of opening, so first of lowest priority is the oldest
+            if(slot.notification.getPriority() < priority
+                    && (victim == null || slot.notification.getPriority() < victim.notification.getPriority())) {
+                victim = slot;
+            }
+        }
+        if(victim == null) {
+            return false;
+        }
+        slots.remove(victim);
+        display.preempt(victim.notification);
+        return true;
+    }
+
+    private void coalesce(String tag) {
+        for(int i = 0; i < queued.size(); ++i) {
+            if(tag.equals(queued.get(i).getTag())) {
+                display.dropped(queued.remove(i), Acknowledgement.COALESCED);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replace notification in place, keeping its slot or queue position
+     * @param previous Notification replaced
+     * @param updated New version of notification
+     */
+    void replace(ClientNotification previous, ClientNotification updated) {
+        int index = queued.indexOf(previous);
+        if(index >= 0) {
+            queued.set(index, updated);
+            return;
+        }
+        Slot slot = findSlot(previous);
+        if(slot == null) {
+            // Slot was released while notification stayed in browser, replacing it does not add a visible one
+            slot = new Slot(updated, Duration.currentTimeMillis());
+            slots.add(slot);
+        } else {
+            slot.assign(updated, Duration.currentTimeMillis());
+        }
+        display.open(updated);
+        reschedule();
+    }
+
+    /**
+     * Find queued notification
+     * @param owner Owner of notification
+     * @param id Id of notification within its owner
+     * @return Queued notification or null if not queued
+     */
+    ClientNotification findQueued(NotifyUtilListener owner, int id) {
+        for(ClientNotification notification : queued) {
+            if(notification.getOwner() == owner && notification.getId() == id) {
+                return notification;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Free slot of notification closed
+     * @param notification Notification closed
+     */
+    void release(ClientNotification notification) {
+        Slot slot = findSlot(notification);
+        if(slot != null) {
+            slots.remove(slot);
+            pump();
+            reschedule();
+        }
+    }
+
+    /**
+     * Forget notifications of owner going away
+     * @param owner Owner of notifications
+     */
+    void removeOwner(NotifyUtilListener owner) {
+        queued.removeIf(n -> n.getOwner() == owner);
+        slots.removeIf(slot -> slot.notification.getOwner() == owner);
+        pump();
+        reschedule();
+    }
+
+    int getQueuedCount() {
+        return queued.size();
+    }
+
+    private Slot findSlot(ClientNotification notification) {
+        for(Slot slot : slots) {
+            if(slot.notification == notification) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private void pump() {
+        double now = Duration.currentTimeMillis();
+        while(slots.size() < maxVisible && !queued.isEmpty()) {
+            ClientNotification next = queued.remove(0);
+            if(next.isExpired(now)) {
+                display.dropped(next, Acknowledgement.EXPIRED);
+            } else {
+                open(next);
+            }
+        }
+    }
+
+    private void open(ClientNotification notification) {
+        slots.add(new Slot(notification, Duration.currentTimeMillis()));
+        display.open(notification);
+        reschedule();
+    }
+
+    private void expire() {
+        double now = Duration.currentTimeMillis();
+        List<ClientNotification> timedOut = new ArrayList<>();
+        for(int i = slots.size() - 1; i >= 0; --i) {
+            Slot slot = slots.get(i);
+            if(slot.timeoutAt > 0 && slot.timeoutAt <= now) {
+                timedOut.add(slot.notification);
+                slots.remove(i);
+            } else if(slot.releaseAt <= now) {
+                slots.remove(i);
+            }
+        }
+        // Closing fires close events, so slots are updated before
+        timedOut.forEach(display::timeout);
+        pump();
+        reschedule();
+    }
+
+    private void reschedule() {
+        timer.cancel();
+        if(slots.isEmpty()) {
+            return;
+        }
+        double next = Double.MAX_VALUE;
+        for(Slot slot : slots) {
+            next = Math.min(next, slot.releaseAt);
+        }
+        timer.schedule(Math.max(1, (int) Math.ceil(next - Duration.currentTimeMillis())));
+    }
+}
@@ -1,11 +1,19 @@
 package org.vaadin.alump.notify.client.util;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.vaadin.server.Page;
+import elemental.json.JsonArray;
+import org.vaadin.alump.notify.client.NotifyConnector;
+import org.vaadin.alump.notify.client.share.Acknowledgement;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
 import org.vaadin.alump.notify.client.share.NotifyState;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -21,6 +29,37 @@ public class NotifyUtil {
 
     private static List<ClientNotification> queue = new ArrayList<>();
 
+    // Open notifications by page wide id. Ids given by server are unique only within one connector, so native
+    // notifications use page wide ids, and their events are routed to the connector owning the notification.
+    private static Map<Integer, ClientNotification> open = new HashMap<>();
+    private static int localIdCounter = 0;
+
+    // Coordinates notifications with de-duplication key between tabs, null until enabled
+    private static TabCoordinator tabCoordinator = null;
+
+    // Display slots of the page, notifications over the limit wait in display queue
+    private static final DisplayScheduler scheduler = new DisplayScheduler(new DisplayScheduler.Display() {
+        @Override
+        public void open(ClientNotification notification) {
+            NotifyUtil.open(notification);
+        }
+
+        @Override
+        public void timeout(ClientNotification notification) {
+            nativeTimeout(notification.getNativeNotification());
+        }
+
+        @Override
+        public void preempt(ClientNotification notification) {
+            nativeClose(notification.getNativeNotification());
+        }
+
+        @Override
+        public void dropped(ClientNotification notification, int outcome) {
+            fireAcknowledgement(notification, outcome);
+        }
+    });
+
     private static void noSupport() {
         LOGGER.warning("Notification API not supported");
         setState(NotifyState.NOT_SUPPORTED);
@@ -36,12 +75,36 @@ public class NotifyUtil {
         LOGGER.info("notification permission granted");
         setState(NotifyState.READY);
 
-        queue.forEach(n -> show(n));
+        // Notifications expired while user was asked are discarded by display
+        queue.forEach(n -> display(n));
         queue.clear();
     }
 
-    private static void onNotificationClicked(int id) {
-        listeners.forEach(l -> l.onNotificationClicked(id));
+    /**
+     * Discard notifications that expired while waiting for permission, so queue does not grow while user is asked
+     */
+    private static void pruneQueue() {
+        double now = Duration.currentTimeMillis();
+        for(Iterator<ClientNotification> i = queue.iterator(); i.hasNext(); ) {
+            ClientNotification notification = i.next();
+            if(notification.isExpired(now)) {
+                i.remove();
+                fireAcknowledgement(notification, Acknowledgement.EXPIRED);
+            }
+        }
+    }
+
+    private static void onNotificationClicked(int localId, boolean traced) {
+        ClientNotification notification = open.get(localId);
+        if(notification == null) {
+            return;
+        }
+        if(traced) {
+            double clickedAt = Duration.currentTimeMillis();
+            notification.getOwner().onTracedNotificationClicked(notification.getId(), clickedAt);
+        } else {
+            fireAcknowledgement(notification, Acknowledgement.CLICKED);
+        }
     }
 
     private static void permissionDenied() {
@@ -65,6 +128,36 @@ public class NotifyUtil {
 
     public static void removeListener(NotifyUtilListener listener) {
         listeners.remove(listener);
+        // Events of its notifications have nowhere to go anymore
+        open.values().removeIf(n -> n.getOwner() == listener);
+        queue.removeIf(n -> n.getOwner() == listener);
+        if(tabCoordinator != null) {
+            tabCoordinator.removeOwner(listener);
+        }
+        scheduler.removeOwner(listener);
+    }
+
+    /**
+     * Define how many notifications the page displays at once, others wait in display queue
+     * @param maxVisible Maximum amount of visible notifications
+     */
+    public static void setMaxVisible(int maxVisible) {
+        scheduler.setMaxVisible(maxVisible);
+    }
+
+    /**
+     * Enable coordination with other browser tabs of the same origin. Notification with de-duplication key is then
+     * displayed only by one tab, see {@link TabCoordinator}. Once enabled, stays enabled for the page.
+     */
+    public static void enableTabCoordination() {
+        if(tabCoordinator == null) {
+            tabCoordinator = new TabCoordinator(NotifyUtil::display);
+            tabCoordinator.start();
+        }
+    }
+
+    private static boolean isCoordinated(ClientNotification notification) {
+        return tabCoordinator != null && notification.getDedupKey() != null;
     }
 
     private static void setState(NotifyState newStatus) {
@@ -98,22 +191,70 @@ public class NotifyUtil {
         }
     }
 
-    private static void onNotificationClosed(int id) {
-        fireNotificationHandled(id);
+    private static void onNotificationClosed(int localId, boolean timedOut) {
+        ClientNotification notification = open.remove(localId);
+        if(notification != null) {
+            scheduler.release(notification);
+            fireAcknowledgement(notification, timedOut ? Acknowledgement.TIMED_OUT : Acknowledgement.CLOSED);
+        }
     }
 
-     public static void show(ClientNotification notification) {
-        if(state == NotifyState.READY) {
-            JavaScriptObject options = createOptions(notification.getBody(), notification.getIconUrl(),
-                    notification.getSoundUrl(), notification.getTimeoutMs());
-            nativeShow(
-                    notification.getId(),
-                    notification.getTitle(),
-                    options,
-                    getClickFlag(notification),
-                    notification.getTimeoutMs());
+    private static void onNotificationError(int localId) {
+        ClientNotification notification = open.remove(localId);
+        if(notification != null) {
+            scheduler.release(notification);
+            fireAcknowledgement(notification, Acknowledgement.ERROR);
+        }
+    }
+
+    /**
+     * Update tagged notification in place. Update of notification already closed is dropped, as the user dismissed
+     * it and server releases its id once it gets the close. Next show of the tag after that is sent in full under a
+     * new id.
+     * @param connector Connector receiving the update
+     * @param update Encoded update, see {@link EncodedNotification}
+     */
+    public static void update(NotifyConnector connector, JsonArray update) {
+        int id = (int) update.getNumber(EncodedNotification.UPDATE_ID);
+        for(Iterator<ClientNotification> i = open.values().iterator(); i.hasNext(); ) {
+            ClientNotification previous = i.next();
+            if(previous.getOwner() == connector && previous.getId() == id) {
+                i.remove();
+                markReplaced(previous.getNativeNotification());
+                scheduler.replace(previous, previous.update(connector, update));
+                return;
+            }
+        }
+        ClientNotification waiting = scheduler.findQueued(connector, id);
+        if(waiting != null) {
+            scheduler.replace(waiting, waiting.update(connector, update));
+            return;
+        }
+        // Still waiting for permission
+        for(int i = 0; i < queue.size(); ++i) {
+            if(queue.get(i).getOwner() == connector && queue.get(i).getId() == id) {
+                queue.set(i, queue.get(i).update(connector, update));
+                return;
+            }
+        }
+    }
+
+    public static void show(ClientNotification notification) {
+        if(isCoordinated(notification)) {
+            tabCoordinator.offer(notification);
+        } else {
+            display(notification);
+        }
+    }
 
+     private static void display(ClientNotification notification) {
+        if(notification.isExpired(Duration.currentTimeMillis())) {
+            // Eg. waited for permission or other tab too long
+            fireAcknowledgement(notification, Acknowledgement.EXPIRED);
+        } else if(state == NotifyState.READY) {
+            scheduler.submit(notification);
         } else if(state == NotifyState.PERMISSION_ASKED || state == NotifyState.UNINITIALIZED) {
+            pruneQueue();
             queue.add(notification);
             LOGGER.info("Permission not granted, queueing message");
             if(state == NotifyState.UNINITIALIZED) {
@@ -125,6 +266,64 @@ public class NotifyUtil {
         }
      }
 
+    /**
+     * Open native notification, called by display scheduler when notification gets a slot
+     * @param notification Notification opened
+     */
+    private static void open(ClientNotification notification) {
+        JavaScriptObject options = createOptions(notification.getBody(), notification.getIconUrl(),
+                notification.getSoundUrl(), notification.getTimeoutMs(), notification.getTag(),
+                notification.isRenotify());
+        int localId = ++localIdCounter;
+        JavaScriptObject shown = nativeShow(
+                localId,
+                notification.getTitle(),
+                options,
+                getClickFlag(notification),
+                notification.isTraced());
+        notification.setShown(localId, shown);
+        open.put(localId, notification);
+        if(notification.isTraced()) {
+            fireNotificationDisplayed(notification);
+        }
+    }
+
+    /**
+     * Show batch of notifications received with one server invocation
+     * @param notifications Notifications shown, in order
+     */
+    public static void show(List<ClientNotification> notifications) {
+        if(tabCoordinator != null) {
+            List<ClientNotification> uncoordinated = new ArrayList<>(notifications.size());
+            for(ClientNotification notification : notifications) {
+                if(isCoordinated(notification)) {
+                    tabCoordinator.offer(notification);
+                } else {
+                    uncoordinated.add(notification);
+                }
+            }
+            notifications = uncoordinated;
+        }
+        if(notifications.isEmpty()) {
+            return;
+        }
+        if(state == NotifyState.READY) {
+            for(ClientNotification notification : notifications) {
+                display(notification);
+            }
+        } else if(state == NotifyState.PERMISSION_ASKED || state == NotifyState.UNINITIALIZED) {
+            pruneQueue();
+            queue.addAll(notifications);
+            LOGGER.info("Permission not granted, queueing " + notifications.size() + " messages");
+            if(state == NotifyState.UNINITIALIZED) {
+                askPermission();
+            }
+        } else {
+            LOGGER.severe("API not ready, can not show notifications");
+            notifications.forEach(n -> fireNotificationHandled(n));
+        }
+    }
+
      private static int getClickFlag(ClientNotification notification) {
         if(notification.isCloseOnClick()) {
             return 2;
@@ -135,7 +334,8 @@ public class NotifyUtil {
         }
      }
 
-     private native static JavaScriptObject createOptions(String bodyStr, String iconUrl, String soundUrl, Integer timeoutMs)
+     private native static JavaScriptObject createOptions(String bodyStr, String iconUrl, String soundUrl, Integer timeoutMs,
+             String tag, boolean renotify)
      /*-{
         var properties = {};
 
@@ -151,32 +351,76 @@ public class NotifyUtil {
         if(timeoutMs) {
             properties.requireInteraction = true;
         }
+        if(tag) {
+            properties.tag = tag;
+            properties.renotify = renotify;
+        }
 
         return properties;
      }-*/;
 
-     private native static void nativeShow(int id, String titleStr, JavaScriptObject options, int clickable, Integer timeoutMs)
+     private native static JavaScriptObject nativeShow(int localId, String titleStr, JavaScriptObject options, int clickable,
+             boolean traced)
      /*-{
         var n = new $wnd.Notification(titleStr,options);
         if(clickable > 0) {
             n.onclick = function(event) {
                 event.preventDefault();
-                @org.vaadin.alump.notify.client.util.NotifyUtil::onNotificationClicked(*)(id);
+                @org.vaadin.alump.notify.client.util.NotifyUtil::onNotificationClicked(*)(localId, traced);
                 if(clickable == 2) {
                     n.close();
                 }
             };
         }
-        if(timeoutMs) {
-            setTimeout(n.close.bind(n), timeoutMs);
+        n.onclose = function() {
+            // Notification replaced by update with same tag is not closed from server's point of view
+            if(!n.notifyReplaced && !n.notifyReported) {
+                n.notifyReported = true;
+                @org.vaadin.alump.notify.client.util.NotifyUtil::onNotificationClosed(*)(localId, !!n.notifyTimedOut);
+            }
+        };
+        n.onerror = function() {
+            if(!n.notifyReplaced && !n.notifyReported) {
+                n.notifyReported = true;
+                @org.vaadin.alump.notify.client.util.NotifyUtil::onNotificationError(*)(localId);
+            }
+        };
+        return n;
+    }-*/;
+
+    // Timeouts run on shared timer of display scheduler
+    private native static void nativeTimeout(JavaScriptObject notification)
+    /*-{
+        if(!notification.notifyReplaced) {
+            notification.notifyTimedOut = true;
+            notification.close();
         }
     }-*/;
 
+    // Closed for notification of higher priority, reported as closed
+    private native static void nativeClose(JavaScriptObject notification)
+    /*-{
+        if(!notification.notifyReplaced) {
+            notification.close();
+        }
+    }-*/;
+
+    private native static void markReplaced(JavaScriptObject notification)
+    /*-{
+        notification.notifyReplaced = true;
+    }-*/;
+
+    private static void fireNotificationDisplayed(ClientNotification notification) {
+        double displayedAt = Duration.currentTimeMillis();
+        int queueMs = (int) (displayedAt - notification.getReceivedAt());
+        notification.getOwner().onNotificationDisplayed(notification.getId(), displayedAt, queueMs);
+    }
+
     private static void fireNotificationHandled(ClientNotification notification) {
-        fireNotificationHandled(notification.getId());
+        fireAcknowledgement(notification, Acknowledgement.ERROR);
     }
 
-    private static void fireNotificationHandled(int id) {
-        listeners.forEach(l -> l.onNotificationHandled(id));
+    private static void fireAcknowledgement(ClientNotification notification, int outcome) {
+        notification.getOwner().onAcknowledgement(notification.getId(), outcome);
     }
 }
@@ -7,6 +7,12 @@ import org.vaadin.alump.notify.client.share.NotifyState;
  */
 public interface NotifyUtilListener {
     void onNewClientNotifyState(NotifyState state);
-    void onNotificationHandled(int id);
-    void onNotificationClicked(int id);
+    /**
+     * Called with outcome of notification
+     * @param id ID of notification
+     * @param outcome Outcome, see {@link org.vaadin.alump.notify.client.share.Acknowledgement}
+     */
+    void onAcknowledgement(int id, int outcome);
+    void onNotificationDisplayed(int id, double displayedAt, int queueMs);
+    void onTracedNotificationClicked(int id, double clickedAt);
 }
@@ -0,0 +1,276 @@
+package org.vaadin.alump.notify.client.util;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.Random;
+import com.google.gwt.user.client.Timer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Coordinates notifications with de-duplication key between browser tabs of the same origin. One tab is elected
+ * leader with a lease kept in local storage. Tab displaying a notification announces its key to other tabs through
+ * BroadcastChannel, or through local storage events when BroadcastChannel is not available. Leader displays
+ * notifications at once, other tabs hold their copy for a while and drop it when the key is announced. Copy not
+ * announced in time is displayed by the tab holding it, so notification received only by some tabs is not lost.
+ * Copies dropped are settled locally, server is not called.
+ */
+class TabCoordinator {
+
+    private transient final static Logger LOGGER = Logger.getLogger(TabCoordinator.class.getName());
+
+    /**
+     * Displays notification in this tab
+     */
+    interface Display {
+        void display(ClientNotification notification);
+    }
+
+    public static final int HEARTBEAT_MS = 1000;
+    public static final int LEASE_MS = 3000;
+    public static final int HOLD_MS = 1500;
+    public static final int ANNOUNCED_TTL_MS = 60000;
+
+    private static final String LEADER_KEY = "vaadin-notify-leader";
+    private static final String ANNOUNCE_KEY = "vaadin-notify-announce";
+    private static final String CHANNEL_NAME = "vaadin-notify";
+
+    /**
+     * Copy of notification waiting for announcement from other tab
+     */
+    private static class HeldCopy {
+        private final ClientNotification notification;
+        private final double deadline;
+
+        private HeldCopy(ClientNotification notification, double deadline) {
+            this.notification = notification;
+            this.deadline = deadline;
+        }
+    }
+
+    private final Display display;
+    private final String tabId = Integer.toHexString(Random.nextInt()) + "-" + (long) Duration.currentTimeMillis();
+    // Keys announced by any tab, with time of announcement
+    private final Map<String, Double> announced = new HashMap<>();
+    // Held copies by key, in order of deadlines
+    private final Map<String, HeldCopy> held = new LinkedHashMap<>();
+    private boolean leader = false;
+    private JavaScriptObject channel;
+
+    private final Timer heartbeat = new Timer() {
+        @Override
+        public void run() {
+            electLeader();
+            pruneAnnounced();
+        }
+    };
+
+    private final Timer holdTimer = new Timer() {
+        @Override
+        public void run() {
+            releaseExpired();
+        }
+    };
+
+    TabCoordinator(Display display) {
+        this.display = display;
+    }
+
+    /**
+     * Start listening other tabs and take part in leader election
+     */
+    void start() {
+        channel = nativeStart(this, CHANNEL_NAME, LEADER_KEY, ANNOUNCE_KEY);
+        electLeader();
+        heartbeat.scheduleRepeating(HEARTBEAT_MS);
+    }
+
+    /**
+     * Offer notification with de-duplication key. Notification is displayed now, later or never, depending on other
+     * tabs.
+     * @param notification Notification received by this tab
+     */
+    void offer(ClientNotification notification) {
+        String key = notification.getDedupKey();
+        if(announced.containsKey(key) || held.containsKey(key)) {
+            LOGGER.fine("Notification " + key + " already handled by a tab, settled locally");
+        } else if(leader) {
+            announceAndDisplay(notification);
+        } else {
+            held.put(key, new HeldCopy(notification, Duration.currentTimeMillis() + HOLD_MS));
+            if(!holdTimer.isRunning()) {
+                holdTimer.schedule(HOLD_MS);
+            }
+        }
+    }
+
+    /**
+     * Drop held copies of owner going away
+     * @param owner Owner of notifications
+     */
+    void removeOwner(NotifyUtilListener owner) {
+        held.values().removeIf(copy -> copy.notification.getOwner() == owner);
+    }
+
+    boolean isLeader() {
+        return leader;
+    }
+
+    private void announceAndDisplay(ClientNotification notification) {
+        String key = notification.getDedupKey();
+        announced.put(key, Duration.currentTimeMillis());
+        nativeAnnounce(channel, ANNOUNCE_KEY, tabId, key);
+        display.display(notification);
+    }
+
+    // Called by other tabs
+    private void onAnnounced(String key) {
+        announced.put(key, Duration.currentTimeMillis());
+        if(held.remove(key) != null) {
+            LOGGER.fine("Notification " + key + " displayed by other tab, settled locally");
+        }
+    }
+
+    private void releaseExpired() {
+        double now = Duration.currentTimeMillis();
+        Iterator<HeldCopy> iterator = held.values().iterator();
+        while(iterator.hasNext()) {
+            HeldCopy copy = iterator.next();
+            if(copy.deadline > now) {
+                holdTimer.schedule(Math.max(1, (int) (copy.deadline - now)));
+                return;
+            }
+            iterator.remove();
+            announceAndDisplay(copy.notification);
+        }
+    }
+
+    private void releaseAll() {
+        holdTimer.cancel();
+        while(!held.isEmpty()) {
+            Iterator<HeldCopy> iterator = held.values().iterator();
+            HeldCopy copy = iterator.next();
+            iterator.remove();
+            announceAndDisplay(copy.notification);
+        }
+    }
+
+    private void pruneAnnounced() {
+        double limit = Duration.currentTimeMillis() - ANNOUNCED_TTL_MS;
+        announced.values().removeIf(at -> at < limit);
+    }
+
+    /**
+     * Take or renew the lease if it is free, expired or already ours. Two tabs may both take an expired lease, the
+     * one reading the other's lease on next heartbeat steps down.
+     */
+    private void electLeader() {
+        double now = Duration.currentTimeMillis();
+        String lease = nativeRead(LEADER_KEY);
+        String owner = null;
+        if(lease != null) {
+            int separator = lease.lastIndexOf('|');
+            if(separator > 0 && Double.parseDouble(lease.substring(separator + 1)) > now) {
+                owner = lease.substring(0, separator);
+            }
+        }
+        if(owner == null || owner.equals(tabId)) {
+            // Without local storage every tab leads, and notifications are displayed as without coordination
+            nativeWrite(LEADER_KEY, tabId + "|" + (long) (now + LEASE_MS));
+            if(!leader) {
+                leader = true;
+                LOGGER.info("Tab " + tabId + " leads notifications");
+                releaseAll();
+            }
+        } else {
+            leader = false;
+        }
+    }
+
+    // Called when tab is closed or hidden for good, so others do not have to wait for lease to expire
+    private void resign() {
+        if(leader) {
+            leader = false;
+            nativeResign(LEADER_KEY, tabId);
+        }
+    }
+
+    private native static JavaScriptObject nativeStart(TabCoordinator self, String channelName, String leaderKey,
+            String announceKey)
+    /*-{
+        $wnd.addEventListener("storage", function(e) {
+            if(e.key === announceKey && e.newValue) {
+                @org.vaadin.alump.notify.client.util.TabCoordinator::onStorageAnnounce(*)(self, e.newValue);
+            } else if(e.key === leaderKey && !e.newValue) {
+                self.@org.vaadin.alump.notify.client.util.TabCoordinator::electLeader()();
+            }
+        });
+        $wnd.addEventListener("pagehide", function() {
+            self.@org.vaadin.alump.notify.client.util.TabCoordinator::resign()();
+        });
+        if(!("BroadcastChannel" in $wnd)) {
+            return null;
+        }
+        var channel = new $wnd.BroadcastChannel(channelName);
+        channel.onmessage = function(e) {
+            self.@org.vaadin.alump.notify.client.util.TabCoordinator::onAnnounced(*)(String(e.data));
+        };
+        return channel;
+    }-*/;
+
+    private static void onStorageAnnounce(TabCoordinator self, String value) {
+        // Value is tab id, time and key, tab id and time keep the value changing so every announcement fires event
+        int first = value.indexOf('|');
+        int second = first < 0 ? -1 : value.indexOf('|', first + 1);
+        if(second > 0) {
+            self.onAnnounced(value.substring(second + 1));
+        }
+    }
+
+    private native static void nativeAnnounce(JavaScriptObject channel, String announceKey, String tabId, String key)
+    /*-{
+        if(channel) {
+            channel.postMessage(key);
+        } else {
+            try {
+                $wnd.localStorage.setItem(announceKey, tabId + "|" + Date.now() + "|" + key);
+            } catch(e) {
+                // Storage not available, other tabs display their copies
+            }
+        }
+    }-*/;
+
+    private native static String nativeRead(String storageKey)
+    /*-{
+        try {
+            return $wnd.localStorage.getItem(storageKey);
+        } catch(e) {
+            return null;
+        }
+    }-*/;
+
+    private native static void nativeWrite(String storageKey, String value)
+    /*-{
+        try {
+            $wnd.localStorage.setItem(storageKey, value);
+        } catch(e) {
+            // Storage not available
+        }
+    }-*/;
+
+    private native static void nativeResign(String leaderKey, String tabId)
+    /*-{
+        try {
+            var lease = $wnd.localStorage.getItem(leaderKey);
+            if(lease && lease.lastIndexOf(tabId + "|", 0) === 0) {
+                $wnd.localStorage.removeItem(leaderKey);
+            }
+        } catch(e) {
+            // Storage not available
+        }
+    }-*/;
+}
@@ -0,0 +1,319 @@
+/**
+ * ClusterCodec.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.cluster;
+
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.Resource;
+import com.vaadin.server.ThemeResource;
+import org.vaadin.alump.notify.NotifyItem;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of message batches sent between nodes. Frame is [version, node id (8 bytes), message
+ * count, messages]. Message is [address type, address, field flags, fields present in order of the flags]. Integers
+ * are variable length, strings are UTF-8 prefixed with byte length. Click listeners and icons other than external or
+ * theme resources can not be encoded, they are left out.
+ */
+final class ClusterCodec {
+
+    static final int VERSION = 1;
+
+    private static final int TITLE = 1;
+    private static final int BODY = 1 << 1;
+    private static final int TIMEOUT_MS = 1 << 2;
+    private static final int TAG = 1 << 3;
+    private static final int RENOTIFY = 1 << 4;
+    private static final int GROUP_KEY = 1 << 5;
+    private static final int DEDUP_KEY = 1 << 6;
+    private static final int PRIORITY = 1 << 7;
+    private static final int EXTERNAL_ICON = 1 << 8;
+    private static final int THEME_ICON = 1 << 9;
+    // Remaining time to live in milliseconds, so clocks of nodes do not need to match
+    private static final int TTL_MS = 1 << 10;
+
+    private static final ClusterMessage.AddressType[] ADDRESS_TYPES = ClusterMessage.AddressType.values();
+    private static final NotifyPriority[] PRIORITIES = NotifyPriority.values();
+
+    /**
+     * Decoded frame
+     */
+    static class Frame {
+        private final long nodeId;
+        private final List<ClusterMessage> messages;
+
+        private Frame(long nodeId, List<ClusterMessage> messages) {
+            this.nodeId = nodeId;
+            this.messages = messages;
+        }
+
+        long getNodeId() {
+            return nodeId;
+        }
+
+        List<ClusterMessage> getMessages() {
+            return messages;
+        }
+    }
+
+    private ClusterCodec() {
+    }
+
+    /**
+     * Encode batch of messages
+     * @param nodeId Id of sending node
+     * @param messages Messages encoded
+     * @return Frame
+     */
+    static byte[] encode(long nodeId, List<ClusterMessage> messages) {
+        Writer out = new Writer(64 * messages.size() + 16);
+        out.writeByte(VERSION);
+        out.writeLong(nodeId);
+        out.writeVarint(messages.size());
+        for(ClusterMessage message : messages) {
+            out.writeByte(message.getAddressType().ordinal());
+            out.writeString(message.getAddress());
+            encode(out, message.getNotification());
+        }
+        return out.toByteArray();
+    }
+
+    private static void encode(Writer out, NotifyItem item) {
+        String title = item.getTitle();
+        String body = item.getBody().orElse(null);
+        Integer timeoutMs = item.getTimeoutMs().orElse(null);
+        String tag = item.getTag().orElse(null);
+        String groupKey = item.getGroupKey().orElse(null);
+        String dedupKey = item.getDedupKey().orElse(null);
+        Resource icon = item.getIcon().orElse(null);
+        Instant expiresAt = item.getExpiresAt().orElse(null);
+
+        int flags = 0;
+        flags |= title != null ? TITLE : 0;
+        flags |= body != null ? BODY : 0;
+        flags |= timeoutMs != null ? TIMEOUT_MS : 0;
+        flags |= tag != null ? TAG : 0;
+        flags |= item.isRenotify() ? RENOTIFY : 0;
+        flags |= groupKey != null ? GROUP_KEY : 0;
+        flags |= dedupKey != null ? DEDUP_KEY : 0;
+        flags |= item.getPriority() != NotifyPriority.NORMAL ? PRIORITY : 0;
+        flags |= icon instanceof ExternalResource ? EXTERNAL_ICON : 0;
+        flags |= icon instanceof ThemeResource ? THEME_ICON : 0;
+        flags |= expiresAt != null ? TTL_MS : 0;
+
+        out.writeVarint(flags);
+        if(title != null) {
+            out.writeString(title);
+        }
+        if(body != null) {
+            out.writeString(body);
+        }
+        if(timeoutMs != null) {
+            out.writeVarint(timeoutMs);
+        }
+        if(tag != null) {
+            out.writeString(tag);
+        }
+        if(groupKey != null) {
+            out.writeString(groupKey);
+        }
+        if(dedupKey != null) {
+            out.writeString(dedupKey);
+        }
+        if((flags & PRIORITY) != 0) {
+            out.writeByte(item.getPriority().ordinal());
+        }
+        if(icon instanceof ExternalResource) {
+            out.writeString(((ExternalResource) icon).getURL());
+        } else if(icon instanceof ThemeResource) {
+            out.writeString(((ThemeResource) icon).getResourceId());
+        }
+        if(expiresAt != null) {
+            long ttlMs = expiresAt.toEpochMilli() - System.currentTimeMillis();
+            out.writeVarint((int) Math.max(0L, Math.min(Integer.MAX_VALUE, ttlMs)));
+        }
+    }
+
+    /**
+     * Decode frame
+     * @param frame Frame encoded with {@link #encode(long, List)}
+     * @return Decoded frame
+     * @throws IllegalArgumentException If frame is invalid or of unsupported version
+     */
+    static Frame decode(byte[] frame) {
+        Reader in = new Reader(frame);
+        int version = in.readByte();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version " + version);
+        }
+        long nodeId = in.readLong();
+        int count = in.readVarint();
+        List<ClusterMessage> messages = new ArrayList<>(Math.min(count, frame.length));
+        for(int i = 0; i < count; ++i) {
+            int addressType = in.readByte();
+            if(addressType >= ADDRESS_TYPES.length) {
+                throw new IllegalArgumentException("Invalid address type " + addressType);
+            }
+            String address = in.readString();
+            messages.add(new ClusterMessage(ADDRESS_TYPES[addressType], address, decodeItem(in)));
+        }
+        return new Frame(nodeId, messages);
+    }
+
+    private static NotifyItem decodeItem(Reader in) {
+        int flags = in.readVarint();
+        NotifyItem item = new NotifyItem();
+        if((flags & TITLE) != 0) {
+            item.setTitle(in.readString());
+        }
+        if((flags & BODY) != 0) {
+            item.setBody(in.readString());
+        }
+        if((flags & TIMEOUT_MS) != 0) {
+            item.setTimeoutMs(in.readVarint());
+        }
+        if((flags & TAG) != 0) {
+            item.setTag(in.readString());
+        }
+        item.setRenotify((flags & RENOTIFY) != 0);
+        if((flags & GROUP_KEY) != 0) {
+            item.setGroupKey(in.readString());
+        }
+        if((flags & DEDUP_KEY) != 0) {
+            item.setDedupKey(in.readString());
+        }
+        if((flags & PRIORITY) != 0) {
+            int priority = in.readByte();
+            if(priority >= PRIORITIES.length) {
+                throw new IllegalArgumentException("Invalid priority " + priority);
+            }
+            item.setPriority(PRIORITIES[priority]);
+        }
+        if((flags & EXTERNAL_ICON) != 0) {
+            item.setIcon(new ExternalResource(in.readString()));
+        } else if((flags & THEME_ICON) != 0) {
+            item.setIcon(new ThemeResource(in.readString()));
+        }
+        if((flags & TTL_MS) != 0) {
+            item.setTimeToLiveMs(in.readVarint());
+        }
+        return item;
+    }
+
+    private static class Writer {
+        private byte[] buffer;
+        private int size = 0;
+
+        private Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if(size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarint(int value) {
+            ensure(5);
+            while((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] buffer;
+        private int position = 0;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private void require(int amount) {
+            if(amount < 0 || position + amount > buffer.length) {
+                throw new IllegalArgumentException("Truncated frame");
+            }
+        }
+
+        private int readByte() {
+            require(1);
+            return buffer[position++] & 0xFF;
+        }
+
+        private long readLong() {
+            require(8);
+            long value = 0;
+            for(int i = 0; i < 8; ++i) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for(int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid variable length integer");
+        }
+
+        private String readString() {
+            int length = readVarint();
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * ClusterMessage.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.cluster;
+
+import org.vaadin.alump.notify.NotifyItem;
+
+import java.util.Objects;
+
+/**
+ * Notification addressed to a user or topic, published to all nodes of a cluster
+ */
+public class ClusterMessage {
+
+    /**
+     * How notification is addressed
+     */
+    public enum AddressType {
+        /** Principal id, see {@link org.vaadin.alump.notify.Notify#showToUser(String, NotifyItem)} */
+        USER,
+        /** Topic, see {@link org.vaadin.alump.notify.Notify#showToTopic(String, NotifyItem)} */
+        TOPIC
+    }
+
+    private final AddressType addressType;
+    private final String address;
+    private final NotifyItem notification;
+
+    public ClusterMessage(AddressType addressType, String address, NotifyItem notification) {
+        this.addressType = Objects.requireNonNull(addressType);
+        this.address = Objects.requireNonNull(address);
+        this.notification = Objects.requireNonNull(notification);
+    }
+
+    public AddressType getAddressType() {
+        return addressType;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public NotifyItem getNotification() {
+        return notification;
+    }
+}
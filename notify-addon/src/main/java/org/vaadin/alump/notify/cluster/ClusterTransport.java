@@ -0,0 +1,55 @@
+/**
+ * ClusterTransport.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.cluster;
+
+/**
+ * Transport carrying notification frames between nodes of a cluster. Frames are opaque byte arrays encoded by
+ * {@link NotifyCluster}. Transport sends a frame to every other node, delivery to the sending node is not needed.
+ * Implementations must be thread safe.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Receives frames sent by other nodes
+     */
+    @FunctionalInterface
+    interface Receiver {
+        /**
+         * Called for each frame received. May be called from any thread, and should not block.
+         * @param frame Frame received
+         */
+        void receive(byte[] frame);
+    }
+
+    /**
+     * Start receiving frames
+     * @param receiver Receiver of frames from other nodes
+     */
+    void start(Receiver receiver);
+
+    /**
+     * Send frame to all other nodes
+     * @param frame Frame sent, must not be modified after calling this
+     */
+    void send(byte[] frame);
+
+    /**
+     * Stop sending and receiving frames
+     */
+    void close();
+}
@@ -0,0 +1,97 @@
+/**
+ * LoopbackTransport.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.cluster;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process transport connecting nodes created from the same {@link Hub}, so behavior of a multi-node cluster can be
+ * tested in one JVM. Each node receives frames on its own thread, in the order they were sent.
+ */
+public class LoopbackTransport implements ClusterTransport {
+
+    /**
+     * Connects loopback transports of one test cluster
+     */
+    public static class Hub {
+        private final CopyOnWriteArrayList<LoopbackTransport> nodes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger nodeCounter = new AtomicInteger(0);
+
+        /**
+         * Create transport of a new node
+         * @return Transport connected to this hub
+         */
+        public LoopbackTransport createTransport() {
+            return new LoopbackTransport(this, nodeCounter.incrementAndGet());
+        }
+
+        public int getNodeCount() {
+            return nodes.size();
+        }
+    }
+
+    private final Hub hub;
+    private final ExecutorService receiverThread;
+    private volatile Receiver receiver;
+
+    private LoopbackTransport(Hub hub, int nodeNumber) {
+        this.hub = hub;
+        receiverThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notify-loopback-" + nodeNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        hub.nodes.add(this);
+    }
+
+    @Override
+    public void send(byte[] frame) {
+        for(LoopbackTransport node : hub.nodes) {
+            if(node != this) {
+                node.enqueue(frame);
+            }
+        }
+    }
+
+    private void enqueue(byte[] frame) {
+        Receiver target = receiver;
+        if(target == null) {
+            return;
+        }
+        try {
+            receiverThread.execute(() -> target.receive(frame));
+        } catch (RejectedExecutionException e) {
+            // Node closed while sending
+        }
+    }
+
+    @Override
+    public void close() {
+        hub.nodes.remove(this);
+        receiverThread.shutdown();
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * NotifyCluster.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.cluster;
+
+import org.vaadin.alump.notify.Notify;
+import org.vaadin.alump.notify.NotifyItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cluster wide delivery of notifications addressed to users and topics. Published notification is delivered to
+ * matching UIs of this node at once, and sent to other nodes over {@link ClusterTransport}, where it is delivered to
+ * their matching UIs. Messages are batched: a batch is sent when it is full, or when linger time has passed since its
+ * first message. Batches are encoded to compact binary frames. Click listeners do not travel between nodes, and only
+ * external and theme resource icons do.
+ */
+public class NotifyCluster {
+
+    private final static Logger LOGGER = Logger.getLogger(NotifyCluster.class.getName());
+
+    /**
+     * Delivers notifications to UIs of this node
+     */
+    public interface Delivery {
+        /**
+         * Deliver notification to local UIs matching address
+         * @param message Message delivered
+         * @return Amount of UIs notification was queued to
+         */
+        int deliver(ClusterMessage message);
+    }
+
+    /**
+     * Delivery to UIs registered with {@link Notify#setPrincipal} and {@link Notify#subscribe}
+     */
+    public static final Delivery NOTIFY_DELIVERY = message -> {
+        switch(message.getAddressType()) {
+            case USER:
+                return Notify.showToUser(message.getAddress(), message.getNotification());
+            default:
+                return Notify.showToTopic(message.getAddress(), message.getNotification());
+        }
+    };
+
+    public static final int DEFAULT_MAX_BATCH = 64;
+    public static final long DEFAULT_LINGER_MS = 5L;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private final ClusterTransport transport;
+    private final Delivery delivery;
+    private final int maxBatch;
+    private final long lingerMs;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final ScheduledExecutorService sender;
+
+    // Messages waiting to be sent and linger timer of the batch, guarded by this
+    private List<ClusterMessage> batch = new ArrayList<>();
+    private ScheduledFuture<?> linger;
+    private boolean closed = false;
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+
+    /**
+     * Create cluster delivering to Notify's user and topic index, with default batching
+     * @param transport Transport to other nodes
+     */
+    public NotifyCluster(ClusterTransport transport) {
+        this(transport, NOTIFY_DELIVERY, DEFAULT_MAX_BATCH, DEFAULT_LINGER_MS);
+    }
+
+    /**
+     * Create cluster
+     * @param transport Transport to other nodes
+     * @param delivery Delivery to UIs of this node
+     * @param maxBatch Maximum amount of messages sent in one frame
+     * @param lingerMs Maximum time first message of a batch waits for others, in milliseconds
+     */
+    public NotifyCluster(ClusterTransport transport, Delivery delivery, int maxBatch, long lingerMs) {
+        if(maxBatch < 1) {
+            throw new IllegalArgumentException("Invalid batch size " + maxBatch);
+        }
+        if(lingerMs < 0) {
+            throw new IllegalArgumentException("Invalid linger time " + lingerMs);
+        }
+        this.transport = Objects.requireNonNull(transport);
+        this.delivery = Objects.requireNonNull(delivery);
+        this.maxBatch = maxBatch;
+        this.lingerMs = lingerMs;
+        sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notify-cluster-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transport.start(this::receive);
+    }
+
+    /**
+     * Show notification in UIs of user on all nodes
+     * @param principalId Principal id, see {@link Notify#setPrincipal}
+     * @param notification Notification shown. It is frozen, so the given instance can be modified after calling
+     *                     this.
+     * @return Amount of UIs of this node notification was queued to
+     * @throws IllegalStateException If cluster has been closed
+     */
+    public int showToUser(String principalId, NotifyItem notification) {
+        return publish(ClusterMessage.AddressType.USER, principalId, notification);
+    }
+
+    /**
+     * Show notification in UIs subscribed to topic on all nodes
+     * @param topic Topic, see {@link Notify#subscribe}
+     * @param notification Notification shown. It is frozen, so the given instance can be modified after calling
+     *                     this.
+     * @return Amount of UIs of this node notification was queued to
+     * @throws IllegalStateException If cluster has been closed
+     */
+    public int showToTopic(String topic, NotifyItem notification) {
+        return publish(ClusterMessage.AddressType.TOPIC, topic, notification);
+    }
+
+    private int publish(ClusterMessage.AddressType addressType, String address, NotifyItem notification) {
+        // Encoded later by sender thread, so it must not change meanwhile
+        ClusterMessage message = new ClusterMessage(addressType, address,
+                Objects.requireNonNull(notification).freeze());
+        synchronized (this) {
+            if(closed) {
+                throw new IllegalStateException("Cluster has been closed");
+            }
+            batch.add(message);
+            if(batch.size() >= maxBatch) {
+                List<ClusterMessage> send = batch;
+                batch = new ArrayList<>();
+                cancelLinger();
+                // Submitted while holding the lock, so close can not shut down sender in between
+                sender.execute(() -> send(send));
+            } else if(batch.size() == 1) {
+                linger = sender.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        return delivery.deliver(message);
+    }
+
+    /**
+     * Send messages waiting in batch now
+     */
+    public void flush() {
+        List<ClusterMessage> send;
+        synchronized (this) {
+            cancelLinger();
+            if(batch.isEmpty()) {
+                return;
+            }
+            send = batch;
+            batch = new ArrayList<>();
+        }
+        send(send);
+    }
+
+    private void cancelLinger() {
+        if(linger != null) {
+            linger.cancel(false);
+            linger = null;
+        }
+    }
+
+    private void send(List<ClusterMessage> messages) {
+        try {
+            transport.send(ClusterCodec.encode(nodeId, messages));
+            framesSent.incrementAndGet();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to send " + messages.size() + " notifications to cluster", e);
+        }
+    }
+
+    private void receive(byte[] frame) {
+        ClusterCodec.Frame decoded;
+        try {
+            decoded = ClusterCodec.decode(frame);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Invalid frame received from cluster", e);
+            return;
+        }
+        if(decoded.getNodeId() == nodeId) {
+            return;
+        }
+        framesReceived.incrementAndGet();
+        for(ClusterMessage message : decoded.getMessages()) {
+            messagesReceived.incrementAndGet();
+            try {
+                delivery.deliver(message);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to deliver notification received from cluster", e);
+            }
+        }
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    /**
+     * Send messages waiting in batch, and stop sender thread and transport. Notifications can not be published after
+     * this. Calling this again does nothing.
+     */
+    public void close() {
+        synchronized (this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            // Shutdown would otherwise wait for linger timer
+            cancelLinger();
+        }
+        sender.execute(this::flush);
+        sender.shutdown();
+        try {
+            sender.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.close();
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * InMemoryNotifyMetrics.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.metrics;
+
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics implementation that keeps counters and latency histograms in memory. Use {@link #snapshot()} to scrape
+ * current values, eg. from a monitoring endpoint.
+ */
+public class InMemoryNotifyMetrics implements NotifyMetrics {
+
+    private final LongAdder shown = new LongAdder();
+    private final LongAdder queuedOnClient = new LongAdder();
+    private final Map<DropReason, LongAdder> dropped = new EnumMap<>(DropReason.class);
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder clicked = new LongAdder();
+    private final LongAdder handled = new LongAdder();
+    private final Map<HandledReason, LongAdder> handledByReason = new EnumMap<>(HandledReason.class);
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder pending = new LongAdder();
+    private final LongAdder vibrateRequests = new LongAdder();
+    private final LatencyHistogram ingressLatency = new LatencyHistogram();
+    private final Map<NotifyPriority, LatencyHistogram> ingressLatencyByPriority = new EnumMap<>(NotifyPriority.class);
+    private final Map<NotifyPriority, LongAdder> overTarget = new EnumMap<>(NotifyPriority.class);
+    // Latency target per priority in nanoseconds, 0 if not defined
+    private final long[] latencyTargets = new long[NotifyPriority.values().length];
+
+    /** Default latency target of urgent notifications */
+    public static final long DEFAULT_URGENT_TARGET_MS = 100;
+    /** Default latency target of high priority notifications */
+    public static final long DEFAULT_HIGH_TARGET_MS = 500;
+
+    public InMemoryNotifyMetrics() {
+        for(DropReason reason : DropReason.values()) {
+            dropped.put(reason, new LongAdder());
+        }
+        for(HandledReason reason : HandledReason.values()) {
+            handledByReason.put(reason, new LongAdder());
+        }
+        for(NotifyPriority priority : NotifyPriority.values()) {
+            ingressLatencyByPriority.put(priority, new LatencyHistogram());
+            overTarget.put(priority, new LongAdder());
+        }
+        setLatencyTargetMs(NotifyPriority.URGENT, DEFAULT_URGENT_TARGET_MS);
+        setLatencyTargetMs(NotifyPriority.HIGH, DEFAULT_HIGH_TARGET_MS);
+    }
+
+    /**
+     * Define ingress latency target of priority. Notifications passed to client later than this are counted, see
+     * {@link #getOverTargetCount(NotifyPriority)}.
+     * @param priority Priority
+     * @param targetMs Target in milliseconds, 0 to not count
+     */
+    public void setLatencyTargetMs(NotifyPriority priority, long targetMs) {
+        latencyTargets[priority.ordinal()] = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, targetMs));
+    }
+
+    public long getLatencyTargetMs(NotifyPriority priority) {
+        return TimeUnit.NANOSECONDS.toMillis(latencyTargets[priority.ordinal()]);
+    }
+
+    @Override
+    public void notificationShown(long ingressNanos) {
+        shown.increment();
+        ingressLatency.record(ingressNanos);
+    }
+
+    @Override
+    public void notificationShown(NotifyPriority priority, long ingressNanos) {
+        notificationShown(ingressNanos);
+        ingressLatencyByPriority.get(priority).record(ingressNanos);
+        long target = latencyTargets[priority.ordinal()];
+        if(target > 0 && ingressNanos > target) {
+            overTarget.get(priority).increment();
+        }
+    }
+
+    @Override
+    public void notificationQueuedOnClient() {
+        queuedOnClient.increment();
+    }
+
+    @Override
+    public void notificationDropped(DropReason reason) {
+        dropped.get(reason).increment();
+    }
+
+    @Override
+    public void notificationDelayed() {
+        delayed.increment();
+    }
+
+    @Override
+    public void notificationClicked() {
+        clicked.increment();
+    }
+
+    @Override
+    public void notificationHandled() {
+        handled.increment();
+    }
+
+    @Override
+    public void notificationHandled(HandledReason reason) {
+        handledByReason.get(reason).increment();
+        handled.increment();
+    }
+
+    @Override
+    public void notificationEvicted() {
+        evicted.increment();
+    }
+
+    @Override
+    public void pendingChanged(int delta) {
+        pending.add(delta);
+    }
+
+    @Override
+    public void vibrateRequested() {
+        vibrateRequests.increment();
+    }
+
+    public long getShownCount() {
+        return shown.sum();
+    }
+
+    public long getQueuedOnClientCount() {
+        return queuedOnClient.sum();
+    }
+
+    public long getDroppedCount(DropReason reason) {
+        return dropped.get(reason).sum();
+    }
+
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    public long getClickedCount() {
+        return clicked.sum();
+    }
+
+    public long getHandledCount() {
+        return handled.sum();
+    }
+
+    public long getHandledCount(HandledReason reason) {
+        return handledByReason.get(reason).sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public long getPendingCount() {
+        return pending.sum();
+    }
+
+    public long getVibrateRequestCount() {
+        return vibrateRequests.sum();
+    }
+
+    /**
+     * Get histogram of time from Notify.show call to notification being passed to client
+     * @return Ingress latency histogram
+     */
+    public LatencyHistogram getIngressLatency() {
+        return ingressLatency;
+    }
+
+    /**
+     * Get histogram of ingress latency of notifications with given priority
+     * @param priority Priority
+     * @return Ingress latency histogram of priority
+     */
+    public LatencyHistogram getIngressLatency(NotifyPriority priority) {
+        return ingressLatencyByPriority.get(priority);
+    }
+
+    /**
+     * Get amount of notifications with given priority passed to client later than latency target
+     * @param priority Priority
+     * @return Amount of notifications over target
+     */
+    public long getOverTargetCount(NotifyPriority priority) {
+        return overTarget.get(priority).sum();
+    }
+
+    /**
+     * Get current values with stable names, suitable for exporting to monitoring systems
+     * @return Map of metric name to value, in stable order
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("notify.shown", getShownCount());
+        values.put("notify.queued_on_client", getQueuedOnClientCount());
+        for(DropReason reason : DropReason.values()) {
+            values.put("notify.dropped." + reason.name().toLowerCase(), getDroppedCount(reason));
+        }
+        values.put("notify.delayed", getDelayedCount());
+        values.put("notify.clicked", getClickedCount());
+        values.put("notify.handled", getHandledCount());
+        for(HandledReason reason : HandledReason.values()) {
+            values.put("notify.handled." + reason.name().toLowerCase(), getHandledCount(reason));
+        }
+        values.put("notify.evicted", getEvictedCount());
+        values.put("notify.pending", getPendingCount());
+        values.put("notify.vibrate_requests", getVibrateRequestCount());
+        putLatency(values, "notify.ingress_latency", ingressLatency);
+        for(NotifyPriority priority : NotifyPriority.values()) {
+            String name = priority.name().toLowerCase();
+            putLatency(values, "notify.ingress_latency." + name, ingressLatencyByPriority.get(priority));
+            values.put("notify.latency_over_target." + name, getOverTargetCount(priority));
+        }
+        return values;
+    }
+
+    protected static void putLatency(Map<String, Number> values, String name, LatencyHistogram histogram) {
+        values.put(name + ".count", histogram.getCount());
+        values.put(name + ".mean_ns", histogram.getMeanNanos());
+        values.put(name + ".p50_ns", histogram.getPercentileNanos(50));
+        values.put(name + ".p99_ns", histogram.getPercentileNanos(99));
+        values.put(name + ".max_ns", histogram.getMaxNanos());
+    }
+}
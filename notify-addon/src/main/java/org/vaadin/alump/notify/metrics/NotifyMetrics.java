@@ -0,0 +1,141 @@
+/**
+ * NotifyMetrics.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.metrics;
+
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+/**
+ * Receives events of notification pipeline. Methods are called from request and background threads concurrently, so
+ * implementations must be thread safe and cheap. All methods have empty default implementations.
+ */
+public interface NotifyMetrics {
+
+    /**
+     * Metrics implementation that ignores everything, used by default
+     */
+    NotifyMetrics NOOP = new NotifyMetrics() {
+    };
+
+    /**
+     * Reasons why notification was not passed to client
+     */
+    enum DropReason {
+        /** Notification API is not supported by browser */
+        NOT_SUPPORTED,
+        /** User has denied notifications */
+        PERMISSION_DENIED,
+        /** Rate limit was exceeded */
+        RATE_LIMITED,
+        /** Notification delayed by rate limit or queued to outbox was replaced by newer one */
+        COLLAPSED,
+        /** Outbox of UI was full */
+        OUTBOX_FULL,
+        /** Display queue of client was full */
+        DISPLAY_QUEUE_FULL,
+        /** Notification queued on client was replaced by newer one with same tag */
+        DISPLAY_COALESCED,
+        /** Notification expired before it was displayed, on server or client */
+        EXPIRED
+    }
+
+    /**
+     * How client reported notification handled
+     */
+    enum HandledReason {
+        /** Closed by user or browser */
+        CLOSED,
+        /** Closed by timeout */
+        TIMED_OUT,
+        /** Browser failed to show notification */
+        ERROR
+    }
+
+    /**
+     * Called when notification is passed to client
+     * @param ingressNanos Nanoseconds from Notify.show call to notification being passed to client
+     */
+    default void notificationShown(long ingressNanos) {
+    }
+
+    /**
+     * Called when notification is passed to client. Default implementation calls {@link #notificationShown(long)}.
+     * @param priority Priority of notification
+     * @param ingressNanos Nanoseconds from Notify.show call to notification being passed to client
+     */
+    default void notificationShown(NotifyPriority priority, long ingressNanos) {
+        notificationShown(ingressNanos);
+    }
+
+    /**
+     * Called when notification is passed to client that is still waiting for permission, and will queue it
+     */
+    default void notificationQueuedOnClient() {
+    }
+
+    /**
+     * Called when notification is dropped on server side, or reported dropped by client before it was displayed
+     * @param reason Reason of drop
+     */
+    default void notificationDropped(DropReason reason) {
+    }
+
+    /**
+     * Called when notification exceeds rate limit and is queued to be shown later
+     */
+    default void notificationDelayed() {
+    }
+
+    /**
+     * Called when user clicks a notification
+     */
+    default void notificationClicked() {
+    }
+
+    /**
+     * Called when client reports notification handled (closed or timed out)
+     */
+    default void notificationHandled() {
+    }
+
+    /**
+     * Called when client reports notification handled. By default calls {@link #notificationHandled()}.
+     * @param reason How notification was handled
+     */
+    default void notificationHandled(HandledReason reason) {
+        notificationHandled();
+    }
+
+    /**
+     * Called when pending notification is evicted without client reporting it handled
+     */
+    default void notificationEvicted() {
+    }
+
+    /**
+     * Called when amount of pending notifications changes
+     * @param delta Change in amount of pending notifications
+     */
+    default void pendingChanged(int delta) {
+    }
+
+    /**
+     * Called when vibrate is requested
+     */
+    default void vibrateRequested() {
+    }
+}
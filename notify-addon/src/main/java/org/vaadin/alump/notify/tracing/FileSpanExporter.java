@@ -0,0 +1,141 @@
+/**
+ * FileSpanExporter.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exporter appending spans to a file as JSON lines. Spans are written by a background thread, so exporting never
+ * blocks request threads. If writer falls behind and its queue fills, spans are dropped and counted.
+ */
+public class FileSpanExporter implements NotifySpanExporter, Closeable {
+
+    private final static Logger LOGGER = Logger.getLogger(FileSpanExporter.class.getName());
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int BATCH_SIZE = 256;
+
+    private final BlockingQueue<NotifySpan> queue;
+    private final BufferedWriter writer;
+    private final Thread writerThread;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed = false;
+
+    /**
+     * Create exporter appending to given file
+     * @param file File spans are appended to, created if missing
+     * @throws IOException If file can not be opened
+     */
+    public FileSpanExporter(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create exporter appending to given file
+     * @param file File spans are appended to, created if missing
+     * @param capacity Maximum amount of spans waiting to be written
+     * @throws IOException If file can not be opened
+     */
+    public FileSpanExporter(Path file, int capacity) throws IOException {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        writerThread = new Thread(this::run, "notify-span-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void export(NotifySpan span) {
+        if(closed || !queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Get amount of spans dropped because writer queue was full or exporter was closed
+     * @return Amount of dropped spans
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<NotifySpan> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while(!closed || !queue.isEmpty()) {
+                NotifySpan first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<NotifySpan> batch) {
+        try {
+            for(NotifySpan span : batch) {
+                writer.write(span.toJson());
+                writer.newLine();
+            }
+            // Flushed per batch, so file is up to date whenever writer is idle
+            writer.flush();
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            LOGGER.log(Level.WARNING, "Failed to write notification spans", e);
+        }
+    }
+
+    /**
+     * Write spans already exported and close the file
+     * @throws IOException If closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * NotifySpan.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.tracing;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency span of one notification, from Notify.show call to browser displaying it and to click listener being
+ * called. Durations measured on server are free of clock skew. Durations mixing server and browser clocks are marked
+ * as clock based, and are only as accurate as clocks are in sync. Missing values are -1.
+ */
+public class NotifySpan implements Serializable {
+
+    /**
+     * How the span ended
+     */
+    public enum Outcome {
+        /** Client reported notification closed */
+        HANDLED,
+        /** Notification was evicted from pending notifications without client reporting it */
+        EVICTED
+    }
+
+    private final String traceId;
+    private final int uiId;
+    private final int notificationId;
+    private final long showEpochMs;
+    private final long sendNanos;
+    private final long displayAckNanos;
+    private final long clientQueueMs;
+    private final long clockDeliveryMs;
+    private final long clockClickToServerMs;
+    private final long clickListenerNanos;
+    private final long totalNanos;
+    private final Outcome outcome;
+
+    private NotifySpan(Builder builder, Outcome outcome, long endNanos) {
+        traceId = builder.traceId;
+        uiId = builder.uiId;
+        notificationId = builder.notificationId;
+        showEpochMs = builder.showEpochMs;
+        sendNanos = elapsed(builder.showNanos, builder.sentNanos);
+        displayAckNanos = elapsed(builder.showNanos, builder.displayAckNanos);
+        clientQueueMs = builder.clientQueueMs;
+        clockDeliveryMs = builder.clientDisplayedEpochMs < 0 ? -1L
+                : Math.max(0L, builder.clientDisplayedEpochMs - builder.showEpochMs);
+        clockClickToServerMs = builder.clientClickedEpochMs < 0 ? -1L
+                : Math.max(0L, builder.clickReceivedEpochMs - builder.clientClickedEpochMs);
+        clickListenerNanos = elapsed(builder.clickReceivedNanos, builder.clickListenerNanos);
+        totalNanos = elapsed(builder.showNanos, endNanos);
+        this.outcome = outcome;
+    }
+
+    private static long elapsed(long from, long to) {
+        return from < 0 || to < 0 ? -1L : to - from;
+    }
+
+    /**
+     * Get trace id, unique within JVM
+     * @return Trace id
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public int getUIId() {
+        return uiId;
+    }
+
+    public int getNotificationId() {
+        return notificationId;
+    }
+
+    /**
+     * Get server time when Notify.show was called
+     * @return Epoch milliseconds
+     */
+    public long getShowEpochMs() {
+        return showEpochMs;
+    }
+
+    /**
+     * Get time from Notify.show to notification being written to client response
+     * @return Nanoseconds, -1 if not sent
+     */
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    /**
+     * Get time from Notify.show to server receiving client's report of notification being displayed. This is upper
+     * bound of delivery latency, as it includes the report's trip back to server.
+     * @return Nanoseconds, -1 if not displayed
+     */
+    public long getDisplayAckNanos() {
+        return displayAckNanos;
+    }
+
+    /**
+     * Get time notification waited on client before being displayed (eg. waiting for permission)
+     * @return Milliseconds measured by browser clock, -1 if not displayed
+     */
+    public long getClientQueueMs() {
+        return clientQueueMs;
+    }
+
+    /**
+     * Get clock based time from Notify.show to browser displaying the notification
+     * @return Milliseconds, -1 if not displayed
+     */
+    public long getClockDeliveryMs() {
+        return clockDeliveryMs;
+    }
+
+    /**
+     * Get clock based time from user clicking notification to server receiving the click
+     * @return Milliseconds, -1 if not clicked
+     */
+    public long getClockClickToServerMs() {
+        return clockClickToServerMs;
+    }
+
+    /**
+     * Get time from server receiving the click to click listener returning
+     * @return Nanoseconds, -1 if not clicked
+     */
+    public long getClickListenerNanos() {
+        return clickListenerNanos;
+    }
+
+    /**
+     * Get time from Notify.show to end of span
+     * @return Nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isDisplayed() {
+        return displayAckNanos >= 0;
+    }
+
+    public boolean isClicked() {
+        return clickListenerNanos >= 0;
+    }
+
+    /**
+     * Get span as single line JSON object
+     * @return JSON string
+     */
+    public String toJson() {
+        return "{\"traceId\":\"" + traceId + "\""
+                + ",\"uiId\":" + uiId
+                + ",\"notificationId\":" + notificationId
+                + ",\"showEpochMs\":" + showEpochMs
+                + ",\"sendUs\":" + toMicros(sendNanos)
+                + ",\"displayAckUs\":" + toMicros(displayAckNanos)
+                + ",\"clientQueueMs\":" + clientQueueMs
+                + ",\"clockDeliveryMs\":" + clockDeliveryMs
+                + ",\"clockClickToServerMs\":" + clockClickToServerMs
+                + ",\"clickListenerUs\":" + toMicros(clickListenerNanos)
+                + ",\"totalUs\":" + toMicros(totalNanos)
+                + ",\"outcome\":\"" + outcome.name() + "\"}";
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos < 0 ? -1L : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Collects timestamps of notification in flight
+     */
+    public static class Builder implements Serializable {
+        private final String traceId;
+        private final int uiId;
+        private final int notificationId;
+        private final long showEpochMs;
+        private final long showNanos;
+        private long sentNanos = -1L;
+        private long displayAckNanos = -1L;
+        private long clientQueueMs = -1L;
+        private long clientDisplayedEpochMs = -1L;
+        private long clientClickedEpochMs = -1L;
+        private long clickReceivedEpochMs = -1L;
+        private long clickReceivedNanos = -1L;
+        private long clickListenerNanos = -1L;
+
+        /**
+         * Start span
+         * @param traceId Trace id
+         * @param uiId Id of UI
+         * @param notificationId Id of notification in UI
+         * @param showEpochMs Server time of Notify.show call
+         * @param showNanos System.nanoTime of Notify.show call
+         */
+        public Builder(String traceId, int uiId, int notificationId, long showEpochMs, long showNanos) {
+            this.traceId = traceId;
+            this.uiId = uiId;
+            this.notificationId = notificationId;
+            this.showEpochMs = showEpochMs;
+            this.showNanos = showNanos;
+        }
+
+        public String getTraceId() {
+            return traceId;
+        }
+
+        public long getShowEpochMs() {
+            return showEpochMs;
+        }
+
+        public long getShowNanos() {
+            return showNanos;
+        }
+
+        public Builder sent(long nanos) {
+            if(sentNanos < 0) {
+                sentNanos = nanos;
+            }
+            return this;
+        }
+
+        public Builder displayed(long ackNanos, long clientDisplayedEpochMs, long clientQueueMs) {
+            displayAckNanos = ackNanos;
+            this.clientDisplayedEpochMs = clientDisplayedEpochMs;
+            this.clientQueueMs = clientQueueMs;
+            return this;
+        }
+
+        public Builder clickReceived(long nanos, long epochMs, long clientClickedEpochMs) {
+            clickReceivedNanos = nanos;
+            clickReceivedEpochMs = epochMs;
+            this.clientClickedEpochMs = clientClickedEpochMs;
+            return this;
+        }
+
+        public Builder clickListenerDone(long nanos) {
+            clickListenerNanos = nanos;
+            return this;
+        }
+
+        /**
+         * Finish span
+         * @param outcome How span ended
+         * @param endNanos System.nanoTime at end
+         * @return Finished span
+         */
+        public NotifySpan build(Outcome outcome, long endNanos) {
+            return new NotifySpan(this, outcome, endNanos);
+        }
+    }
+}
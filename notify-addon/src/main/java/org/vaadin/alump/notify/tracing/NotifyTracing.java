@@ -0,0 +1,137 @@
+/**
+ * NotifyTracing.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify.tracing;
+
+import org.vaadin.alump.notify.metrics.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Global switch of notification latency tracing. When enabled, every notification shown carries a trace id to the
+ * client, client reports back when it displayed the notification and when it was clicked, and a {@link NotifySpan} is
+ * exported when the notification is closed or evicted. Delivery and click latencies are also collected to histograms,
+ * so p50 and p99 latencies of the deployment can be read without parsing exported spans.
+ */
+public class NotifyTracing {
+
+    private final static Logger LOGGER = Logger.getLogger(NotifyTracing.class.getName());
+
+    private static volatile NotifySpanExporter exporter = null;
+
+    // Random prefix keeps trace ids of different JVMs apart when spans are collected together
+    private static final String TRACE_ID_PREFIX = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16);
+    private static final AtomicLong traceCounter = new AtomicLong(0);
+
+    private static final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private static final LatencyHistogram clickLatency = new LatencyHistogram();
+
+    private NotifyTracing() {
+    }
+
+    /**
+     * Enable tracing of notifications shown after this call
+     * @param spanExporter Exporter receiving finished spans
+     */
+    public static void enable(NotifySpanExporter spanExporter) {
+        if(spanExporter == null) {
+            throw new IllegalArgumentException("Exporter can not be null");
+        }
+        exporter = spanExporter;
+    }
+
+    /**
+     * Disable tracing. Notifications already in flight are not exported anymore.
+     */
+    public static void disable() {
+        exporter = null;
+    }
+
+    public static boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Get histogram of time from Notify.show call to server receiving client's report of notification being displayed.
+     * Measured with server clock only.
+     * @return Delivery latency histogram
+     */
+    public static LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    /**
+     * Get histogram of time from user clicking notification to click listener returning on server. Includes browser
+     * to server clock difference.
+     * @return Click latency histogram
+     */
+    public static LatencyHistogram getClickLatency() {
+        return clickLatency;
+    }
+
+    /**
+     * Generate new trace id
+     * @return Trace id unique within JVM
+     */
+    public static String nextTraceId() {
+        return TRACE_ID_PREFIX + "-" + Long.toHexString(traceCounter.incrementAndGet());
+    }
+
+    /**
+     * Record that server received report of notification being displayed
+     * @param span Span of notification
+     * @param clientDisplayedEpochMs Browser time of display
+     * @param clientQueueMs Time notification waited on client before display
+     */
+    public static void recordDisplayed(NotifySpan.Builder span, long clientDisplayedEpochMs, long clientQueueMs) {
+        long now = System.nanoTime();
+        span.displayed(now, clientDisplayedEpochMs, clientQueueMs);
+        deliveryLatency.record(now - span.getShowNanos());
+    }
+
+    /**
+     * Record click listener having returned
+     * @param span Span of notification
+     * @param clientClickedEpochMs Browser time of click
+     */
+    public static void recordClicked(NotifySpan.Builder span, long clientClickedEpochMs) {
+        long now = System.currentTimeMillis();
+        span.clickListenerDone(System.nanoTime());
+        clickLatency.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0L, now - clientClickedEpochMs)));
+    }
+
+    /**
+     * Finish span and pass it to exporter
+     * @param span Span of notification
+     * @param outcome How span ended
+     */
+    public static void finish(NotifySpan.Builder span, NotifySpan.Outcome outcome) {
+        NotifySpanExporter spanExporter = exporter;
+        if(spanExporter == null) {
+            return;
+        }
+        try {
+            spanExporter.export(span.build(outcome, System.nanoTime()));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to export notification span", e);
+        }
+    }
+}
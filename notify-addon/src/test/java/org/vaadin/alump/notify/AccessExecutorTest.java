@@ -0,0 +1,77 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+import org.vaadin.alump.notify.metrics.NotifyMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class AccessExecutorTest {
+
+    @Test
+    public void producerDoesNotDrainOutbox() throws InterruptedException {
+        List<String> drainThreads = new CopyOnWriteArrayList<>();
+        MockVaadinSession session = new MockVaadinSession();
+        UI ui = new MockUI(session);
+        session.lock();
+        try {
+            Notify.getInstance(ui);
+        } finally {
+            session.unlock();
+        }
+
+        Notify.setMetrics(new NotifyMetrics() {
+            @Override
+            public void notificationShown(NotifyPriority priority, long ingressNanos) {
+                drainThreads.add(Thread.currentThread().getName());
+            }
+        });
+        try {
+            // Session lock is free, so UI.access called by this thread would drain here
+            Notify.show(ui, new NotifyItem().setTitle("Hello"));
+            long end = System.currentTimeMillis() + 5000;
+            while(drainThreads.isEmpty()) {
+                if(System.currentTimeMillis() > end) {
+                    Assert.fail("Timed out");
+                }
+                Thread.sleep(5);
+            }
+            Assert.assertTrue(drainThreads.get(0).startsWith("notify-access-"));
+        } finally {
+            Notify.setMetrics(NotifyMetrics.NOOP);
+        }
+    }
+
+    @Test
+    public void accessesToOneUIAreCoalesced() throws InterruptedException {
+        List<String> run = new ArrayList<>();
+        MockVaadinSession session = new MockVaadinSession();
+        UI ui = new MockUI(session);
+        AccessExecutor.Channel channel = new AccessExecutor.Channel(ui);
+
+        session.lock();
+        try {
+            channel.access(() -> run.add("first"));
+            channel.access(() -> run.add("second"));
+            long end = System.currentTimeMillis() + 5000;
+            while(session.getPendingAccessQueue().isEmpty()) {
+                if(System.currentTimeMillis() > end) {
+                    Assert.fail("Timed out");
+                }
+                Thread.sleep(5);
+            }
+            channel.access(() -> run.add("third"));
+            Thread.sleep(20);
+            // Session is locked, access thread only queued single access running all tasks
+            Assert.assertEquals(1, session.getPendingAccessQueue().size());
+            Assert.assertTrue(run.isEmpty());
+        } finally {
+            session.unlock();
+        }
+        Assert.assertEquals("[first, second, third]", run.toString());
+    }
+}
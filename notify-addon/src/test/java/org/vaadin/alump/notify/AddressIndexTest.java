@@ -0,0 +1,69 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AddressIndexTest {
+
+    private final AddressIndex index = new AddressIndex();
+
+    @Test
+    public void membersAreAddedOnce() {
+        Notify a = new Notify();
+        Notify b = new Notify();
+        index.add("alice", a);
+        index.add("alice", a);
+        index.add("alice", b);
+        Assert.assertArrayEquals(new Notify[] { a, b }, index.get("alice"));
+        Assert.assertEquals(0, index.get("bob").length);
+    }
+
+    @Test
+    public void addressWithoutMembersIsRemoved() {
+        Notify a = new Notify();
+        Notify b = new Notify();
+        index.add("project", a);
+        index.add("project", b);
+        Notify[] snapshot = index.get("project");
+
+        index.remove("project", a);
+        Assert.assertArrayEquals(new Notify[] { b }, index.get("project"));
+        // Snapshots already read are not changed
+        Assert.assertEquals(2, snapshot.length);
+
+        index.remove("project", b);
+        Assert.assertEquals(0, index.get("project").length);
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void concurrentChangesAreNotLost() throws InterruptedException {
+        int threads = 4;
+        int perThread = 200;
+        List<Notify> members = new ArrayList<>();
+        for(int i = 0; i < threads * perThread; ++i) {
+            members.add(new Notify());
+        }
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; ++t) {
+            List<Notify> own = members.subList(t * perThread, (t + 1) * perThread);
+            new Thread(() -> {
+                // Last member leaving removes the address while others keep adding
+                for(Notify member : own) {
+                    index.add("topic", member);
+                    index.add("churn", member);
+                    index.remove("churn", member);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        Assert.assertEquals(threads * perThread, index.get("topic").length);
+        Assert.assertEquals(0, index.get("churn").length);
+        Assert.assertEquals(1, index.size());
+    }
+}
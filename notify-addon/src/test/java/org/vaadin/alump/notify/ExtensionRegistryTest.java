@@ -0,0 +1,48 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExtensionRegistryTest {
+
+    @Test
+    public void restoredExtensionIsFoundAndRegistered() {
+        MockVaadinSession session = new MockVaadinSession();
+        UI ui = new MockUI(session);
+        session.lock();
+        try {
+            Notify notify = Notify.getInstance(ui);
+            // Registry of restored session does not know attached UIs, as attach is not called again
+            ExtensionRegistry<Notify> registry = new ExtensionRegistry<>(Notify.class);
+            Assert.assertSame(notify, registry.get(ui));
+            Assert.assertEquals(1, registry.size());
+            Assert.assertSame(notify, Notify.getInstance(ui));
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void unreachableUIsAreNotKept() throws InterruptedException {
+        ExtensionRegistry<Notify> registry = new ExtensionRegistry<>(Notify.class);
+        registerNotify(registry);
+        for(int i = 0; i < 50 && registry.size() > 0; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, registry.size());
+    }
+
+    private static void registerNotify(ExtensionRegistry<Notify> registry) {
+        MockVaadinSession session = new MockVaadinSession();
+        UI ui = new MockUI(session);
+        session.lock();
+        try {
+            registry.register(ui, Notify.getInstance(ui));
+        } finally {
+            session.unlock();
+        }
+        Assert.assertEquals(1, registry.size());
+    }
+}
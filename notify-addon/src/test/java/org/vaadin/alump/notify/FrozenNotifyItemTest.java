@@ -0,0 +1,101 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.ThemeResource;
+import elemental.json.JsonArray;
+import elemental.json.JsonType;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FrozenNotifyItemTest {
+
+    @Test
+    public void frozenCopyIsDetachedFromSource() {
+        NotifyItem source = new NotifyItem().setTitle("Title").setBody("Body").setTimeoutMs(3000)
+                .setIcon(new ThemeResource("icon.png"));
+        FrozenNotifyItem frozen = source.freeze();
+        source.setTitle("Changed").setBody(null);
+
+        Assert.assertTrue(frozen.isFrozen());
+        Assert.assertSame(frozen, frozen.freeze());
+        Assert.assertEquals("Title", frozen.getTitle());
+        Assert.assertEquals("Body", frozen.getBody().get());
+        Assert.assertEquals(Integer.valueOf(3000), frozen.getTimeoutMs().get());
+        Assert.assertEquals(new ThemeResource("icon.png"), frozen.getIcon().get());
+    }
+
+    @Test
+    public void payloadIsBuiltOnce() {
+        FrozenNotifyItem frozen = new NotifyItem().setTitle("Title").setClickListener(e -> {}).freeze();
+        JsonArray payload = frozen.getPayload();
+        Assert.assertSame(payload, frozen.getPayload());
+        Assert.assertEquals("Title", payload.getString(EncodedNotification.TITLE));
+        Assert.assertEquals(JsonType.NULL, payload.get(EncodedNotification.BODY).getType());
+        Assert.assertEquals(JsonType.NULL, payload.get(EncodedNotification.TIMEOUT_MS).getType());
+        Assert.assertTrue(payload.getBoolean(EncodedNotification.HAS_CLICK_LISTENER));
+    }
+
+    @Test
+    public void dedupKeyIsEncodedWithoutTag() {
+        FrozenNotifyItem frozen = new NotifyItem().setTitle("Title").setDedupKey("alert-1").freeze();
+        JsonArray payload = frozen.getPayload();
+        Assert.assertEquals(JsonType.NULL, payload.get(EncodedNotification.TAG).getType());
+        Assert.assertEquals("alert-1", payload.getString(EncodedNotification.DEDUP_KEY));
+        Assert.assertEquals("alert-1", frozen.getDedupKey().get());
+    }
+
+    @Test
+    public void priorityIsEncodedOnlyWhenNotNormal() {
+        JsonArray normal = new NotifyItem().setTitle("Title").freeze().getPayload();
+        Assert.assertEquals(EncodedNotification.HAS_CLICK_LISTENER + 1, normal.length());
+
+        JsonArray urgent = new NotifyItem().setTitle("Title").setPriority(NotifyPriority.URGENT).freeze().getPayload();
+        Assert.assertEquals(JsonType.NULL, urgent.get(EncodedNotification.DEDUP_KEY).getType());
+        Assert.assertEquals(NotifyPriority.URGENT.ordinal(), (int) urgent.getNumber(EncodedNotification.PRIORITY));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void frozenCanNotBeModified() {
+        new NotifyItem().setTitle("Title").freeze().setBody("Body");
+    }
+
+    @Test
+    public void expiryIsKeptByFrozenCopy() {
+        Instant expiresAt = Instant.now().plusSeconds(30);
+        FrozenNotifyItem frozen = new NotifyItem().setTitle("Title").setExpiresAt(expiresAt).freeze();
+        Assert.assertEquals(expiresAt.toEpochMilli(), frozen.getExpiresAt().get().toEpochMilli());
+        Assert.assertFalse(frozen.isExpired(System.currentTimeMillis()));
+        Assert.assertTrue(frozen.isExpired(expiresAt.toEpochMilli()));
+        Assert.assertFalse(new NotifyItem().isExpired(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void itemIsEncodedLikeFrozenCopy() {
+        NotifyItem item = new NotifyItem().setTitle("Title").setTag("upload").setPriority(NotifyPriority.HIGH)
+                .setTimeToLiveMs(5000);
+        Assert.assertEquals(item.freeze().getPayload().toJson(), FrozenNotifyItem.encodePayload(item).toJson());
+    }
+
+    @Test
+    public void aggregatedItemsAreCopied() {
+        List<NotifyItem> items = new ArrayList<>();
+        items.add(new NotifyItem().setTitle("a"));
+        NotifyItem summary = new NotifyItem().setTitle("summary");
+        summary.setAggregatedItems(items);
+        FrozenNotifyItem frozen = summary.freeze();
+        items.add(new NotifyItem().setTitle("b"));
+
+        Assert.assertEquals(1, frozen.getAggregatedItems().size());
+        try {
+            frozen.setAggregatedItems(items);
+            Assert.fail("Frozen notification was modified");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals(1, frozen.getAggregatedItems().size());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+/**
+ * UI attached to session without servlet container
+ */
+class MockUI extends UI {
+
+    MockUI() {
+    }
+
+    MockUI(VaadinSession session) {
+        session.lock();
+        try {
+            setSession(session);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Override
+    protected void init(VaadinRequest request) {
+    }
+}
@@ -0,0 +1,48 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+
+import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session without servlet container, uses plain reentrant lock so access tasks run as they would in a request. All
+ * sessions share one service, which is also used by sessions restored from serialized form.
+ */
+class MockVaadinSession extends VaadinSession {
+
+    private static final VaadinService SERVICE = createService();
+
+    private final Lock lock = new ReentrantLock();
+
+    MockVaadinSession() {
+        super(SERVICE);
+    }
+
+    private static VaadinService createService() {
+        Properties properties = new Properties();
+        properties.setProperty("productionMode", "true");
+        try {
+            return new VaadinServletService(new VaadinServlet(),
+                    new DefaultDeploymentConfiguration(MockVaadinSession.class, properties));
+        } catch (ServiceException e) {
+            throw new IllegalStateException("Failed to create service", e);
+        }
+    }
+
+    @Override
+    public VaadinService getService() {
+        return SERVICE;
+    }
+
+    @Override
+    public Lock getLockInstance() {
+        return lock;
+    }
+}
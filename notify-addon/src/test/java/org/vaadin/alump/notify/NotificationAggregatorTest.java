@@ -0,0 +1,142 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class NotificationAggregatorTest {
+
+    private final List<NotifyItem> shown = new ArrayList<>();
+    private final List<Runnable> timers = new ArrayList<>();
+
+    private NotificationAggregator create(NotifyAggregation aggregation) {
+        NotificationAggregator aggregator = new NotificationAggregator((item, nanos) -> shown.add(item),
+                (task, delayMs) -> {
+                    timers.add(task);
+                    return new NotifyScheduler.Handle() {
+                        @Override
+                        public boolean cancel() {
+                            return timers.remove(task);
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return !timers.contains(task);
+                        }
+                    };
+                });
+        aggregator.setAggregation(aggregation);
+        return aggregator;
+    }
+
+    @Test
+    public void notificationsWithoutGroupKeyPassThrough() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 100));
+        Assert.assertFalse(aggregator.offer(new NotifyItem().setTitle("a"), 0L));
+        Assert.assertTrue(timers.isEmpty());
+    }
+
+    @Test
+    public void groupIsCombinedWhenWindowCloses() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 100));
+        for(int i = 0; i < 50; ++i) {
+            Assert.assertTrue(aggregator.offer(new NotifyItem().setTitle("message " + i).setGroupKey("inbox"), 0L));
+        }
+        Assert.assertTrue(shown.isEmpty());
+        Assert.assertEquals(1, timers.size());
+
+        timers.get(0).run();
+        Assert.assertEquals(1, shown.size());
+        NotifyItem summary = shown.get(0);
+        Assert.assertEquals("50 new notifications", summary.getTitle());
+        Assert.assertEquals("message 49", summary.getBody().get());
+        Assert.assertEquals(50, summary.getAggregatedItems().size());
+        Assert.assertEquals(0, aggregator.getOpenGroupCount());
+    }
+
+    @Test
+    public void singleNotificationIsShownAsIs() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 100));
+        NotifyItem item = new NotifyItem().setTitle("only").setGroupKey("inbox");
+        aggregator.offer(item, 0L);
+        timers.get(0).run();
+        Assert.assertSame(item, shown.get(0));
+    }
+
+    @Test
+    public void groupIsCombinedWhenFull() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 3,
+                (key, items) -> new NotifyItem().setTitle(key + " " + items.size())));
+        for(int i = 0; i < 4; ++i) {
+            aggregator.offer(new NotifyItem().setGroupKey("chat"), 0L);
+        }
+        Assert.assertEquals(1, shown.size());
+        Assert.assertEquals("chat 3", shown.get(0).getTitle());
+        // Timer of the full group was cancelled, timer of the new group remains
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals(1, aggregator.getOpenGroupCount());
+    }
+
+    @Test
+    public void clickOfSummaryReachesAggregatedListeners() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 2));
+        List<NotifyItem> clicked = new ArrayList<>();
+        NotifyItem first = new NotifyItem().setGroupKey("g").setClickListener(e -> clicked.add(e.getNotification()));
+        NotifyItem second = new NotifyItem().setGroupKey("g");
+        aggregator.offer(first, 0L);
+        aggregator.offer(second, 0L);
+
+        NotifyItem summary = shown.get(0);
+        NotifyClickEvent event = new NotifyClickEvent(summary);
+        Assert.assertEquals(2, event.getAggregatedItems().size());
+        summary.getClickListener().get().onNotificationClick(event);
+        Assert.assertEquals(1, clicked.size());
+        Assert.assertSame(first, clicked.get(0));
+    }
+
+    @Test
+    public void expiredNotificationsAreNotCombined() {
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 100));
+        NotifyItem expired = new NotifyItem().setTitle("typing").setGroupKey("chat").setTimeToLiveMs(0);
+        aggregator.offer(expired, 0L);
+        aggregator.offer(new NotifyItem().setTitle("a").setGroupKey("chat").setTimeToLiveMs(60000), 0L);
+        aggregator.offer(new NotifyItem().setTitle("b").setGroupKey("chat").setTimeToLiveMs(120000), 0L);
+        timers.get(0).run();
+
+        Assert.assertEquals(2, shown.size());
+        Assert.assertSame(expired, shown.get(0));
+        NotifyItem summary = shown.get(1);
+        Assert.assertEquals(2, summary.getAggregatedItems().size());
+        Assert.assertTrue(summary.getExpiresAt().get().isAfter(Instant.now().plusSeconds(100)));
+    }
+
+    @Test
+    public void frozenSummaryIsNotModified() {
+        FrozenNotifyItem shared = new NotifyItem().setTitle("new messages").freeze();
+        NotificationAggregator aggregator = create(new NotifyAggregation(2000, 2, (key, items) -> shared));
+        List<NotifyItem> clicked = new ArrayList<>();
+        for(int i = 0; i < 4; ++i) {
+            aggregator.offer(new NotifyItem().setTitle("message " + i).setGroupKey("chat").setTimeToLiveMs(60000)
+                    .setClickListener(e -> clicked.add(e.getNotification())), 0L);
+        }
+
+        Assert.assertEquals(2, shown.size());
+        Assert.assertTrue(shared.getAggregatedItems().isEmpty());
+        Assert.assertFalse(shared.getClickListener().isPresent());
+        Assert.assertEquals("message 0", shown.get(0).getAggregatedItems().get(0).getTitle());
+        NotifyItem summary = shown.get(1);
+        Assert.assertTrue(summary.isFrozen());
+        Assert.assertEquals("new messages", summary.getTitle());
+        Assert.assertEquals("message 2", summary.getAggregatedItems().get(0).getTitle());
+        Assert.assertTrue(summary.getExpiresAt().isPresent());
+        Assert.assertTrue(((FrozenNotifyItem) summary).getPayload()
+                .getBoolean(EncodedNotification.HAS_CLICK_LISTENER));
+        summary.getClickListener().get().onNotificationClick(new NotifyClickEvent(summary));
+        Assert.assertEquals(2, clicked.size());
+        Assert.assertEquals("message 2", clicked.get(0).getTitle());
+    }
+}
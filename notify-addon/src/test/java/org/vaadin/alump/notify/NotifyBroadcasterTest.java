@@ -0,0 +1,102 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class NotifyBroadcasterTest {
+
+    private final List<MockVaadinSession> sessions = new ArrayList<>();
+    private NotifyBroadcaster broadcaster;
+
+    @After
+    public void shutdown() {
+        sessions.forEach(MockVaadinSession::unlock);
+        if(broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    /**
+     * Create UIs with Notify extension. Sessions stay locked until the end of test, so queued notifications are not
+     * drained and outbox depth tells how many times each UI got the broadcast.
+     */
+    private List<UI> createUIs(int count, int uisPerSession) {
+        List<UI> uis = new ArrayList<>(count);
+        MockVaadinSession session = null;
+        for(int i = 0; i < count; ++i) {
+            if(i % uisPerSession == 0) {
+                session = new MockVaadinSession();
+                session.lock();
+                sessions.add(session);
+            }
+            UI ui = new MockUI(session);
+            Notify.getInstance(ui);
+            uis.add(ui);
+        }
+        return uis;
+    }
+
+    private NotifyBroadcast broadcast(List<UI> uis) throws InterruptedException {
+        NotifyBroadcast broadcast = broadcaster.broadcast(uis, new NotifyItem().setTitle("Broadcast"));
+        Assert.assertTrue(broadcast.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(broadcast.isDone());
+        return broadcast;
+    }
+
+    @Test
+    public void everyUIGetsNotificationOnce() throws InterruptedException {
+        broadcaster = new NotifyBroadcaster(3);
+        Assert.assertEquals(3, broadcaster.getWorkerCount());
+        // More UIs than workers, each worker delivers its own slice
+        List<UI> uis = createUIs(10, 3);
+
+        NotifyBroadcast broadcast = broadcast(uis);
+        Assert.assertEquals(10, broadcast.getTargetCount());
+        Assert.assertEquals(10, broadcast.getCompletedCount());
+        Assert.assertEquals(0, broadcast.getFailedCount());
+        Assert.assertTrue(broadcast.getNotification().isFrozen());
+        for(UI ui : uis) {
+            Assert.assertEquals(1, Notify.getOutboxDepth(ui));
+        }
+    }
+
+    @Test
+    public void moreWorkersThanUIs() throws InterruptedException {
+        broadcaster = new NotifyBroadcaster(4);
+        List<UI> uis = createUIs(2, 1);
+
+        NotifyBroadcast broadcast = broadcast(uis);
+        Assert.assertEquals(2, broadcast.getCompletedCount());
+        for(UI ui : uis) {
+            Assert.assertEquals(1, Notify.getOutboxDepth(ui));
+        }
+    }
+
+    @Test
+    public void failedDeliveriesAreCounted() throws InterruptedException {
+        broadcaster = new NotifyBroadcaster(2);
+        List<UI> uis = createUIs(3, 3);
+        // Outbox already full
+        Notify.setOutboxLimit(uis.get(0), 1, OutboxPolicy.DROP_NEWEST);
+        Notify.show(uis.get(0), new NotifyItem().setTitle("Queued"));
+        // UI without Notify extension
+        uis.add(new MockUI(sessions.get(0)));
+
+        NotifyBroadcast broadcast = broadcast(uis);
+        Assert.assertEquals(4, broadcast.getTargetCount());
+        Assert.assertEquals(2, broadcast.getCompletedCount());
+        Assert.assertEquals(2, broadcast.getFailedCount());
+        Assert.assertEquals(1, Notify.getOutboxDepth(uis.get(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void workerCountMustBePositive() {
+        new NotifyBroadcaster(0);
+    }
+}
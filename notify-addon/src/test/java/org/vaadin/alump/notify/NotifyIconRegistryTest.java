@@ -0,0 +1,48 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.StreamResource;
+import com.vaadin.server.ThemeResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+public class NotifyIconRegistryTest {
+
+    private static StreamResource createStream() {
+        byte[] content = new byte[0];
+        return new StreamResource(() -> new ByteArrayInputStream(content), "icon.png");
+    }
+
+    @Test
+    public void onlyIdentityKeysAreMarked() {
+        NotifyIconRegistry registry = new NotifyIconRegistry();
+        StreamResource stream = createStream();
+        String streamKey = registry.getKey(stream);
+        Assert.assertEquals(streamKey, registry.getKey(stream));
+        Assert.assertFalse(streamKey.equals(registry.getKey(createStream())));
+        Assert.assertTrue(NotifyIconRegistry.isIdentityKey(streamKey));
+        Assert.assertFalse(NotifyIconRegistry.isIdentityKey(registry.getKey(new ThemeResource("icon.png"))));
+    }
+
+    @Test
+    public void registryIsSerializable() throws IOException, ClassNotFoundException {
+        NotifyIconRegistry registry = new NotifyIconRegistry();
+        StreamResource stream = createStream();
+        registry.register(registry.getKey(stream), stream);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(registry);
+        }
+        NotifyIconRegistry restored;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (NotifyIconRegistry) in.readObject();
+        }
+        Assert.assertTrue(NotifyIconRegistry.isIdentityKey(restored.getKey(createStream())));
+    }
+}
@@ -0,0 +1,53 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NotifyOutboxTest {
+
+    @Test
+    public void dropOldestKeepsNewest() {
+        NotifyOutbox<String> outbox = new NotifyOutbox<>(1, 2, OutboxPolicy.DROP_OLDEST);
+        Assert.assertEquals(0, outbox.offer("a", 0));
+        Assert.assertEquals(0, outbox.offer("b", 0));
+        Assert.assertEquals(1, outbox.offer("c", 0));
+        Assert.assertEquals(2, outbox.getDepth());
+        Assert.assertEquals("b", outbox.poll());
+        Assert.assertEquals("c", outbox.poll());
+        Assert.assertNull(outbox.poll());
+        Assert.assertEquals(0, outbox.getDepth());
+    }
+
+    @Test
+    public void dropNewestRejectsWhenFull() {
+        NotifyOutbox<String> outbox = new NotifyOutbox<>(1, 2, OutboxPolicy.DROP_NEWEST);
+        outbox.offer("a", 0);
+        outbox.offer("b", 0);
+        Assert.assertEquals(NotifyOutbox.REJECTED, outbox.offer("c", 0));
+        Assert.assertEquals(2, outbox.getDepth());
+        Assert.assertEquals("a", outbox.poll());
+    }
+
+    @Test
+    public void collapseKeepsOnlyNewWhenFull() {
+        NotifyOutbox<String> outbox = new NotifyOutbox<>(1, 3, OutboxPolicy.COLLAPSE);
+        outbox.offer("a", 0);
+        outbox.offer("b", 0);
+        outbox.offer("c", 0);
+        Assert.assertEquals(3, outbox.offer("d", 0));
+        Assert.assertEquals(1, outbox.getDepth());
+        Assert.assertEquals("d", outbox.poll());
+    }
+
+    @Test
+    public void higherLaneEvictsLowerAndIsPolledFirst() {
+        NotifyOutbox<String> outbox = new NotifyOutbox<>(4, 2, OutboxPolicy.DROP_NEWEST);
+        outbox.offer("bulk1", 0);
+        outbox.offer("bulk2", 0);
+        Assert.assertEquals(1, outbox.offer("urgent", 3));
+        Assert.assertEquals(NotifyOutbox.REJECTED, outbox.offer("bulk3", 0));
+        Assert.assertEquals("urgent", outbox.poll());
+        Assert.assertEquals("bulk1", outbox.poll());
+        Assert.assertNull(outbox.poll());
+    }
+}
@@ -0,0 +1,199 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.ui.UI;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+import org.vaadin.alump.notify.metrics.NotifyMetrics;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class NotifySchedulerTest {
+
+    private final List<String> shown = new CopyOnWriteArrayList<>();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private final NotifyScheduler scheduler = new NotifyScheduler(5, TimeUnit.MILLISECONDS, 8,
+            new NotifyScheduler.Dispatcher() {
+                @Override
+                public void dispatch(UI ui, List<NotifyItem> notifications) {
+                    batchSizes.add(notifications.size());
+                    notifications.forEach(n -> shown.add(n.getTitle()));
+                }
+
+                @Override
+                public boolean isAlive(UI ui) {
+                    return true;
+                }
+            });
+
+    private final UI ui = new UI() {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    };
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void delayedAreShownInOrder() throws InterruptedException {
+        // Longer than one rotation of the 8 bucket wheel
+        scheduler.showAfter(ui, new NotifyItem().setTitle("second"), 100, TimeUnit.MILLISECONDS);
+        scheduler.showAfter(ui, new NotifyItem().setTitle("first"), 10, TimeUnit.MILLISECONDS);
+        NotifyScheduler.Handle cancelled = scheduler.showAfter(ui, new NotifyItem().setTitle("cancelled"), 50,
+                TimeUnit.MILLISECONDS);
+        Assert.assertEquals(3, scheduler.getScheduledCount());
+        Assert.assertTrue(cancelled.cancel());
+        Assert.assertFalse(cancelled.cancel());
+
+        waitFor(() -> shown.size() >= 2);
+        Thread.sleep(30);
+        Assert.assertEquals(2, shown.size());
+        Assert.assertEquals("first", shown.get(0));
+        Assert.assertEquals("second", shown.get(1));
+        Assert.assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void sameTickIsDispatchedAsBatch() throws InterruptedException {
+        for(int i = 0; i < 10; ++i) {
+            scheduler.showAfter(ui, new NotifyItem().setTitle("batch"), 20, TimeUnit.MILLISECONDS);
+        }
+        waitFor(() -> shown.size() >= 10);
+        // Scheduling may cross one tick boundary
+        Assert.assertTrue(batchSizes.size() <= 2);
+    }
+
+    @Test
+    public void recurringRunsUntilCancelled() throws InterruptedException {
+        NotifyScheduler.Handle handle = scheduler.showEvery(ui, new NotifyItem().setTitle("tick"), 0, 10,
+                TimeUnit.MILLISECONDS);
+        waitFor(() -> shown.size() >= 3);
+        Assert.assertTrue(handle.cancel());
+        int count = shown.size();
+        Thread.sleep(50);
+        Assert.assertTrue(shown.size() <= count + 1);
+        Assert.assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void expiredAreDiscarded() throws InterruptedException {
+        scheduler.showAfter(ui, new NotifyItem().setTitle("late").setTimeToLiveMs(5), 40, TimeUnit.MILLISECONDS);
+        NotifyScheduler.Handle handle = scheduler.showEvery(ui, new NotifyItem().setTitle("typing")
+                .setTimeToLiveMs(40), 0, 10, TimeUnit.MILLISECONDS);
+        waitFor(() -> scheduler.getScheduledCount() == 0);
+        int count = shown.size();
+        Thread.sleep(50);
+        Assert.assertEquals(count, shown.size());
+        Assert.assertFalse(shown.contains("late"));
+        Assert.assertFalse(handle.isCancelled());
+    }
+
+    @Test
+    public void periodOfWheelRotationIsNotDelayed() throws InterruptedException {
+        List<Long> times = new CopyOnWriteArrayList<>();
+        // Period is exactly one rotation of the 4 bucket wheel
+        NotifyScheduler rotation = new NotifyScheduler(20, TimeUnit.MILLISECONDS, 4,
+                new NotifyScheduler.Dispatcher() {
+                    @Override
+                    public void dispatch(UI ui, List<NotifyItem> notifications) {
+                        times.add(System.nanoTime());
+                    }
+
+                    @Override
+                    public boolean isAlive(UI ui) {
+                        return true;
+                    }
+                });
+        try {
+            rotation.showEvery(ui, new NotifyItem().setTitle("rotation"), 0, 80, TimeUnit.MILLISECONDS);
+            waitFor(() -> times.size() >= 5);
+            // Absolute deadlines let a late timer catch up later, so each period is checked, not the average
+            for(int i = 1; i < 5; ++i) {
+                long periodMs = TimeUnit.NANOSECONDS.toMillis(times.get(i) - times.get(i - 1));
+                Assert.assertTrue("Period " + periodMs, periodMs < 140);
+            }
+        } finally {
+            rotation.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void scheduleAfterShutdownFails() {
+        scheduler.showAfter(ui, new NotifyItem().setTitle("started"), 10, TimeUnit.MILLISECONDS);
+        scheduler.shutdown();
+        scheduler.showAfter(ui, new NotifyItem().setTitle("rejected"), 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void defaultIsRecreatedAfterShutdown() {
+        NotifyScheduler first = NotifyScheduler.getDefault();
+        first.shutdown();
+        NotifyScheduler second = NotifyScheduler.getDefault();
+        Assert.assertNotSame(first, second);
+        Assert.assertSame(second, NotifyScheduler.getDefault());
+        second.showAfter(ui, new NotifyItem().setTitle("accepted"), 1, TimeUnit.HOURS).cancel();
+    }
+
+    @Test
+    public void pendingTimerDoesNotKeepUI() throws InterruptedException {
+        WeakReference<UI> reference = scheduleReminder();
+        for(int i = 0; i < 50 && reference.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(reference.get());
+    }
+
+    private WeakReference<UI> scheduleReminder() {
+        UI reminded = new MockUI();
+        scheduler.showAfter(reminded, new NotifyItem().setTitle("reminder"), 1, TimeUnit.HOURS);
+        return new WeakReference<>(reminded);
+    }
+
+    @Test
+    public void dueNotificationsAreShownByAccessThread() throws InterruptedException {
+        List<String> showThreads = new CopyOnWriteArrayList<>();
+        MockVaadinSession session = new MockVaadinSession();
+        UI notified = new MockUI(session);
+        session.lock();
+        try {
+            Notify.getInstance(notified);
+        } finally {
+            session.unlock();
+        }
+        NotifyScheduler notifying = new NotifyScheduler(5, TimeUnit.MILLISECONDS, 8);
+        Notify.setMetrics(new NotifyMetrics() {
+            @Override
+            public void notificationShown(NotifyPriority priority, long ingressNanos) {
+                showThreads.add(Thread.currentThread().getName());
+            }
+        });
+        try {
+            notifying.showAfter(notified, new NotifyItem().setTitle("due"), 10, TimeUnit.MILLISECONDS);
+            waitFor(() -> !showThreads.isEmpty());
+            Assert.assertTrue(showThreads.get(0).startsWith("notify-access-"));
+        } finally {
+            Notify.setMetrics(NotifyMetrics.NOOP);
+            notifying.shutdown();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while(!condition.getAsBoolean()) {
+            if(System.currentTimeMillis() > end) {
+                Assert.fail("Timed out");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
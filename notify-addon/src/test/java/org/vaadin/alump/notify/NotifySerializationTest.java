@@ -0,0 +1,52 @@
+package org.vaadin.alump.notify;
+
+import com.vaadin.ui.UI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+public class NotifySerializationTest {
+
+    @Test
+    public void restoredUIIsIndexedAgain() throws IOException, ClassNotFoundException {
+        MockVaadinSession session = new MockVaadinSession();
+        UI ui = new MockUI(session);
+        Notify.setPrincipal(ui, "restored-user");
+        Notify.subscribe(ui, "restored-topic");
+
+        UI restored = (UI) copy(ui);
+        Assert.assertNotSame(ui, restored);
+        Assert.assertTrue(restored.isAttached());
+        // Replica not used on this node is not indexed
+        Assert.assertEquals(1, Notify.showToUser("restored-user", new NotifyItem().setTitle("Hello")));
+
+        // First access of restored session indexes it, original and restored copy are reached
+        restored.getSession().lock();
+        restored.getSession().unlock();
+        Assert.assertEquals(2, Notify.showToUser("restored-user", new NotifyItem().setTitle("Hello")));
+        Assert.assertEquals(2, Notify.showToTopic("restored-topic", new NotifyItem().setTitle("Hello")));
+
+        restored.getSession().lock();
+        try {
+            Assert.assertSame(Notify.getInstance(restored), Notify.getInstance(restored));
+            Assert.assertEquals(1, restored.getExtensions().stream().filter(e -> e instanceof Notify).count());
+        } finally {
+            restored.getSession().unlock();
+        }
+    }
+
+    private static Object copy(Object object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PendingNotificationsTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final List<Integer> evicted = new ArrayList<>();
+
+    private PendingNotifications create() {
+        return new PendingNotifications((id, n) -> evicted.add(id), now::get);
+    }
+
+    @Test
+    public void putGetAndRemove() {
+        PendingNotifications pending = create();
+        NotifyItem item = new NotifyItem().setTitle("test");
+        for(int id = 1; id <= 100; ++id) {
+            pending.put(id, id == 42 ? item : new NotifyItem());
+        }
+        Assert.assertEquals(100, pending.size());
+        Assert.assertSame(item, pending.get(42));
+        Assert.assertSame(item, pending.remove(42));
+        Assert.assertNull(pending.get(42));
+        Assert.assertNull(pending.remove(42));
+        for(int id = 1; id <= 100; ++id) {
+            if(id != 42) {
+                Assert.assertNotNull("id " + id, pending.get(id));
+            }
+        }
+        Assert.assertEquals(99, pending.size());
+        Assert.assertEquals(1, pending.getHandledCount());
+        Assert.assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void replaceKeepsEntry() {
+        PendingNotifications pending = create();
+        NotifyItem replacement = new NotifyItem();
+        pending.put(1, new NotifyItem());
+        Assert.assertTrue(pending.replace(1, replacement));
+        Assert.assertSame(replacement, pending.get(1));
+        Assert.assertEquals(1, pending.size());
+        Assert.assertFalse(pending.replace(2, replacement));
+    }
+
+    @Test
+    public void oldestAreEvictedWhenFull() {
+        PendingNotifications pending = create();
+        pending.setMaxSize(3);
+        for(int id = 1; id <= 5; ++id) {
+            pending.put(id, new NotifyItem());
+        }
+        Assert.assertEquals(3, pending.size());
+        Assert.assertEquals(2, pending.getOverflowCount());
+        Assert.assertEquals(2, evicted.size());
+        Assert.assertEquals(1, (int)evicted.get(0));
+        Assert.assertEquals(2, (int)evicted.get(1));
+        Assert.assertNotNull(pending.get(3));
+    }
+
+    @Test
+    public void expiredAreEvicted() {
+        PendingNotifications pending = create();
+        pending.setTtlMs(1000);
+        pending.put(1, new NotifyItem());
+        pending.put(2, new NotifyItem());
+        now.set(500);
+        pending.put(3, new NotifyItem());
+        now.set(1200);
+        pending.evictExpired();
+        Assert.assertEquals(1, pending.size());
+        Assert.assertEquals(2, pending.getExpiredCount());
+        Assert.assertNotNull(pending.get(3));
+    }
+
+    @Test
+    public void clearEvictsAll() {
+        PendingNotifications pending = create();
+        pending.put(1, new NotifyItem());
+        pending.put(2, new NotifyItem());
+        pending.remove(1);
+        pending.clear();
+        Assert.assertEquals(0, pending.size());
+        Assert.assertEquals(1, evicted.size());
+    }
+}
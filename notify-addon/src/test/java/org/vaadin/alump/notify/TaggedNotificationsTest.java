@@ -0,0 +1,57 @@
+package org.vaadin.alump.notify;
+
+import elemental.json.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.client.share.EncodedNotification;
+
+public class TaggedNotificationsTest {
+
+    @Test
+    public void onlyChangedValuesAreEncoded() {
+        TaggedNotifications tagged = new TaggedNotifications();
+        NotifyItem first = new NotifyItem().setTitle("Upload").setBody("10%").setTag("upload");
+        tagged.add("upload", 7, first, "icon-a");
+
+        TaggedNotifications.Entry entry = tagged.get("upload");
+        tagged.update(entry, new NotifyItem().setTitle("Upload").setBody("20%").setTag("upload"), "icon-a");
+        tagged.update(entry, new NotifyItem().setTitle("Upload").setBody("30%").setTag("upload"), "icon-a");
+        Assert.assertTrue(tagged.hasUpdates());
+
+        JsonArray updates = tagged.encodeUpdates();
+        Assert.assertEquals(1, updates.length());
+        JsonArray update = updates.getArray(0);
+        Assert.assertEquals(3, update.length());
+        Assert.assertEquals(7, (int) update.getNumber(EncodedNotification.UPDATE_ID));
+        Assert.assertEquals(EncodedNotification.CHANGED_BODY,
+                (int) update.getNumber(EncodedNotification.UPDATE_CHANGED));
+        Assert.assertEquals("30%", update.getString(EncodedNotification.UPDATE_VALUES));
+        Assert.assertFalse(tagged.hasUpdates());
+    }
+
+    @Test
+    public void unchangedUpdateIsNotSentUnlessRenotified() {
+        TaggedNotifications tagged = new TaggedNotifications();
+        tagged.add("t", 1, new NotifyItem().setTitle("Same").setTag("t"), null);
+        TaggedNotifications.Entry entry = tagged.get("t");
+
+        tagged.update(entry, new NotifyItem().setTitle("Same").setTag("t"), null);
+        Assert.assertEquals(0, tagged.encodeUpdates().length());
+
+        tagged.update(entry, new NotifyItem().setTitle("Same").setTag("t").setRenotify(true), null);
+        JsonArray update = tagged.encodeUpdates().getArray(0);
+        Assert.assertEquals(EncodedNotification.RENOTIFY_FLAG,
+                (int) update.getNumber(EncodedNotification.UPDATE_CHANGED));
+    }
+
+    @Test
+    public void entryIsRemovedOnlyByItsOwnId() {
+        TaggedNotifications tagged = new TaggedNotifications();
+        NotifyItem item = new NotifyItem().setTag("t");
+        tagged.add("t", 2, item, null);
+        tagged.remove(1, item);
+        Assert.assertEquals(1, tagged.size());
+        tagged.remove(2, item);
+        Assert.assertNull(tagged.get("t"));
+    }
+}
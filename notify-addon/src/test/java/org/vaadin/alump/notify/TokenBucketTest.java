@@ -0,0 +1,80 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void burstIsAllowedThenRateIsEnforced() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+        for(int i = 0; i < 3; ++i) {
+            Assert.assertEquals("token " + i, 0L, bucket.tryAcquire(now));
+        }
+        long wait = bucket.tryAcquire(now);
+        Assert.assertTrue(wait > 0 && wait <= SECOND / 10);
+        Assert.assertEquals(0L, bucket.tryAcquire(now + wait));
+        Assert.assertTrue(bucket.tryAcquire(now + wait) > 0);
+    }
+
+    @Test
+    public void bucketDoesNotFillOverBurst() {
+        TokenBucket bucket = new TokenBucket(100, 2);
+        long now = System.nanoTime();
+        now += 10 * SECOND;
+        Assert.assertEquals(0L, bucket.tryAcquire(now));
+        Assert.assertEquals(0L, bucket.tryAcquire(now));
+        Assert.assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    @Test
+    public void releasedTokenCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+        Assert.assertEquals(0L, bucket.tryAcquire(now));
+        Assert.assertTrue(bucket.tryAcquire(now) > 0);
+        bucket.release();
+        Assert.assertEquals(0L, bucket.tryAcquire(now));
+    }
+
+    @Test
+    public void concurrentAcquiresDoNotExceedBurst() throws InterruptedException {
+        // Refill is so slow that only the initial burst can be taken during the test
+        TokenBucket bucket = new TokenBucket(0.001, 500);
+        AtomicInteger acquired = new AtomicInteger(0);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for(int j = 0; j < 1000; ++j) {
+                    if(bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(500, acquired.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRateIsRejected() {
+        new TokenBucket(0, 1);
+    }
+}
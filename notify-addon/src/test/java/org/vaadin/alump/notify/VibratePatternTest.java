@@ -0,0 +1,45 @@
+package org.vaadin.alump.notify;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VibratePatternTest {
+
+    @Test
+    public void adjacentStepsAreMerged() {
+        Vibrate.Pattern pattern = Vibrate.createPattern().vibrate(100).vibrate(50).delay(20).delay(30).vibrate(10);
+        Assert.assertArrayEquals(new int[] {150, 50, 10}, pattern.toArray());
+    }
+
+    @Test
+    public void leadingDelayStartsWithZeroVibrateAndTrailingDelayIsDropped() {
+        Vibrate.Pattern pattern = Vibrate.createPattern().delay(100).vibrate(200).delay(300);
+        Assert.assertArrayEquals(new int[] {0, 100, 200}, pattern.toArray());
+    }
+
+    @Test
+    public void longStepsAreSplit() {
+        Vibrate.Pattern pattern = Vibrate.createPattern().vibrate(25000);
+        Assert.assertArrayEquals(new int[] {10000, 0, 10000, 0, 5000}, pattern.toArray());
+    }
+
+    @Test
+    public void patternIsTruncatedToBrowserLimit() {
+        Vibrate.Pattern pattern = Vibrate.createPattern();
+        for(int i = 0; i < 100; ++i) {
+            pattern.vibrate(10).delay(10);
+        }
+        int[] compiled = pattern.toArray();
+        Assert.assertEquals(Vibrate.Pattern.MAX_STEPS, compiled.length);
+        Assert.assertEquals(1, compiled.length % 2);
+    }
+
+    @Test
+    public void compiledPatternIsCachedUntilModified() {
+        Vibrate.Pattern pattern = Vibrate.createPattern().vibrate(100);
+        int[] compiled = pattern.compile();
+        Assert.assertSame(compiled, pattern.compile());
+        pattern.delay(100).vibrate(100);
+        Assert.assertArrayEquals(new int[] {100, 100, 100}, pattern.compile());
+    }
+}
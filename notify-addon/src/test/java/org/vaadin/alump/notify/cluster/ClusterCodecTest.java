@@ -0,0 +1,67 @@
+package org.vaadin.alump.notify.cluster;
+
+import com.vaadin.server.ExternalResource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.NotifyItem;
+import org.vaadin.alump.notify.client.share.NotifyPriority;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ClusterCodecTest {
+
+    @Test
+    public void messagesSurviveRoundTrip() {
+        NotifyItem full = new NotifyItem().setTitle("Title ä").setBody("Body").setTimeoutMs(5000).setTag("tag")
+                .setRenotify(true).setGroupKey("group").setDedupKey("dedup").setPriority(NotifyPriority.URGENT)
+                .setIcon(new ExternalResource("https://example.com/icon.png")).setTimeToLiveMs(60000);
+        NotifyItem minimal = new NotifyItem().setTitle("Only title");
+        byte[] frame = ClusterCodec.encode(42L, Arrays.asList(
+                new ClusterMessage(ClusterMessage.AddressType.USER, "alice", full),
+                new ClusterMessage(ClusterMessage.AddressType.TOPIC, "project", minimal)));
+
+        ClusterCodec.Frame decoded = ClusterCodec.decode(frame);
+        Assert.assertEquals(42L, decoded.getNodeId());
+        List<ClusterMessage> messages = decoded.getMessages();
+        Assert.assertEquals(2, messages.size());
+
+        Assert.assertEquals(ClusterMessage.AddressType.USER, messages.get(0).getAddressType());
+        Assert.assertEquals("alice", messages.get(0).getAddress());
+        NotifyItem item = messages.get(0).getNotification();
+        Assert.assertEquals("Title ä", item.getTitle());
+        Assert.assertEquals("Body", item.getBody().get());
+        Assert.assertEquals(Integer.valueOf(5000), item.getTimeoutMs().get());
+        Assert.assertEquals("tag", item.getTag().get());
+        Assert.assertTrue(item.isRenotify());
+        Assert.assertEquals("group", item.getGroupKey().get());
+        Assert.assertEquals("dedup", item.getDedupKey().get());
+        Assert.assertEquals(NotifyPriority.URGENT, item.getPriority());
+        Assert.assertEquals("https://example.com/icon.png",
+                ((ExternalResource) item.getIcon().get()).getURL());
+        Assert.assertTrue(item.getExpiresAt().get().isAfter(Instant.now().plusSeconds(50)));
+
+        NotifyItem second = messages.get(1).getNotification();
+        Assert.assertEquals("Only title", second.getTitle());
+        Assert.assertFalse(second.getBody().isPresent());
+        Assert.assertEquals(NotifyPriority.NORMAL, second.getPriority());
+        Assert.assertFalse(second.getExpiresAt().isPresent());
+    }
+
+    @Test
+    public void encodingIsCompact() {
+        byte[] frame = ClusterCodec.encode(1L, Collections.singletonList(new ClusterMessage(
+                ClusterMessage.AddressType.USER, "alice", new NotifyItem().setTitle("Hello"))));
+        // Header 10, address type 1, address 6, flags 1, title 6
+        Assert.assertEquals(24, frame.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFrameIsRejected() {
+        byte[] frame = ClusterCodec.encode(1L, Collections.singletonList(new ClusterMessage(
+                ClusterMessage.AddressType.USER, "alice", new NotifyItem().setTitle("Hello"))));
+        ClusterCodec.decode(Arrays.copyOf(frame, frame.length - 2));
+    }
+}
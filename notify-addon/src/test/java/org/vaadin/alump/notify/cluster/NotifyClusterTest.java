@@ -0,0 +1,96 @@
+package org.vaadin.alump.notify.cluster;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.alump.notify.NotifyItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+public class NotifyClusterTest {
+
+    private final LoopbackTransport.Hub hub = new LoopbackTransport.Hub();
+    private final List<NotifyCluster> nodes = new ArrayList<>();
+    private final List<Queue<ClusterMessage>> delivered = new ArrayList<>();
+
+    private NotifyCluster createNode(int maxBatch, long lingerMs) {
+        Queue<ClusterMessage> messages = new ConcurrentLinkedQueue<>();
+        NotifyCluster node = new NotifyCluster(hub.createTransport(), message -> {
+            messages.add(message);
+            return 1;
+        }, maxBatch, lingerMs);
+        nodes.add(node);
+        delivered.add(messages);
+        return node;
+    }
+
+    @After
+    public void close() {
+        nodes.forEach(NotifyCluster::close);
+    }
+
+    private static void awaitSize(Queue<?> queue, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(queue.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(size, queue.size());
+    }
+
+    @Test
+    public void publishedNotificationIsDeliveredOnEveryNodeOnce() throws InterruptedException {
+        NotifyCluster a = createNode(NotifyCluster.DEFAULT_MAX_BATCH, 1L);
+        createNode(NotifyCluster.DEFAULT_MAX_BATCH, 1L);
+        createNode(NotifyCluster.DEFAULT_MAX_BATCH, 1L);
+
+        a.showToUser("alice", new NotifyItem().setTitle("Hello"));
+        for(Queue<ClusterMessage> messages : delivered) {
+            awaitSize(messages, 1);
+            Assert.assertEquals("alice", messages.peek().getAddress());
+            Assert.assertEquals("Hello", messages.peek().getNotification().getTitle());
+        }
+    }
+
+    @Test
+    public void messagesAreBatchedToFrames() throws InterruptedException {
+        // Linger long enough that only full batches and explicit flush send frames
+        NotifyCluster a = createNode(4, TimeUnit.MINUTES.toMillis(1));
+        NotifyCluster b = createNode(4, TimeUnit.MINUTES.toMillis(1));
+
+        for(int i = 0; i < 10; ++i) {
+            a.showToTopic("project", new NotifyItem().setTitle("Message " + i));
+        }
+        awaitSize(delivered.get(1), 8);
+        a.flush();
+        awaitSize(delivered.get(1), 10);
+
+        Assert.assertEquals(3, a.getFramesSent());
+        Assert.assertEquals(3, b.getFramesReceived());
+        Assert.assertEquals(10, b.getMessagesReceived());
+        Assert.assertEquals("Message 9", new ArrayList<>(delivered.get(1)).get(9).getNotification().getTitle());
+    }
+
+    @Test
+    public void notificationIsFrozenWhenPublished() throws InterruptedException {
+        NotifyCluster a = createNode(NotifyCluster.DEFAULT_MAX_BATCH, 20L);
+        createNode(NotifyCluster.DEFAULT_MAX_BATCH, 20L);
+
+        NotifyItem item = new NotifyItem().setTitle("Original");
+        a.showToUser("alice", item);
+        item.setTitle("Changed");
+        awaitSize(delivered.get(1), 1);
+        Assert.assertEquals("Original", delivered.get(0).peek().getNotification().getTitle());
+        Assert.assertEquals("Original", delivered.get(1).peek().getNotification().getTitle());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publishAfterCloseIsRejected() {
+        NotifyCluster a = createNode(NotifyCluster.DEFAULT_MAX_BATCH, 1L);
+        a.close();
+        a.showToTopic("project", new NotifyItem().setTitle("Late"));
+    }
+}
@@ -0,0 +1,33 @@
+package org.vaadin.alump.notify.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundsContainValues() {
+        for(long value = 0; value < 100000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assert.assertTrue("value " + value, value <= LatencyHistogram.upperBoundOf(bucket));
+            if(bucket > 0) {
+                Assert.assertTrue("value " + value, value > LatencyHistogram.upperBoundOf(bucket - 1));
+            }
+        }
+        Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000L, histogram.getMaxNanos());
+        long p50 = histogram.getPercentileNanos(50);
+        Assert.assertTrue("p50 " + p50, p50 >= 500000L && p50 <= 500000L * 5 / 4);
+        long p99 = histogram.getPercentileNanos(99);
+        Assert.assertTrue("p99 " + p99, p99 >= 990000L && p99 <= 1000000L);
+    }
+}
@@ -0,0 +1,36 @@
+package org.vaadin.alump.notify.tracing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class FileSpanExporterTest {
+
+    @Test
+    public void spansAreWrittenAsJsonLines() throws Exception {
+        Path file = Files.createTempFile("notify-spans", ".jsonl");
+        try {
+            FileSpanExporter exporter = new FileSpanExporter(file);
+            NotifySpan.Builder displayed = new NotifySpan.Builder("t-1", 1, 1, 1000L, 0L)
+                    .sent(2000L).displayed(5000L, 1004L, 3L);
+            exporter.export(displayed.build(NotifySpan.Outcome.HANDLED, 9000L));
+            exporter.export(new NotifySpan.Builder("t-2", 1, 2, 1000L, 0L).build(NotifySpan.Outcome.EVICTED, 1000L));
+            exporter.close();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            Assert.assertEquals(2, lines.size());
+            Assert.assertTrue(lines.get(0), lines.get(0).startsWith("{\"traceId\":\"t-1\""));
+            Assert.assertTrue(lines.get(0), lines.get(0).contains("\"displayAckUs\":5,"));
+            Assert.assertTrue(lines.get(0), lines.get(0).contains("\"clockDeliveryMs\":4,"));
+            Assert.assertTrue(lines.get(1), lines.get(1).contains("\"displayAckUs\":-1,"));
+            Assert.assertTrue(lines.get(1), lines.get(1).endsWith("\"outcome\":\"EVICTED\"}"));
+            Assert.assertEquals(0, exporter.getDroppedCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * BenchmarkEnvironment.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sessions and UIs for benchmarks without servlet container. Sessions use plain reentrant lock, so extensions can be
+ * attached, RPCs invoked and session access tasks run as they would be in a request.
+ */
+final class BenchmarkEnvironment {
+
+    private BenchmarkEnvironment() {
+    }
+
+    static VaadinService createService() {
+        Properties properties = new Properties();
+        properties.setProperty("productionMode", "true");
+        try {
+            return new VaadinServletService(new VaadinServlet(),
+                    new DefaultDeploymentConfiguration(BenchmarkEnvironment.class, properties));
+        } catch (ServiceException e) {
+            throw new IllegalStateException("Failed to create service", e);
+        }
+    }
+
+    static VaadinSession createSession(VaadinService service) {
+        return new BenchmarkSession(service);
+    }
+
+    /**
+     * Create UI attached to session
+     * @param session Session, must not be locked by other threads
+     * @return Attached UI
+     */
+    static UI createUI(VaadinSession session) {
+        UI ui = new BenchmarkUI();
+        session.lock();
+        try {
+            ui.setSession(session);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+
+    /**
+     * Create UI with Notify extension attached to session
+     * @param session Session, must not be locked by other threads
+     * @return Attached UI
+     */
+    static UI createNotifyUI(VaadinSession session) {
+        UI ui = createUI(session);
+        session.lock();
+        try {
+            Notify.getInstance(ui);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+
+    /**
+     * Write outgoing notifications as in end of request, and drop recorded invocations. Must be called while holding
+     * session lock.
+     * @param notify Notify extension
+     */
+    static void flush(Notify notify) {
+        notify.beforeClientResponse(false);
+        notify.retrievePendingRpcCalls();
+    }
+
+    static class BenchmarkSession extends VaadinSession {
+        private final Lock lock = new ReentrantLock();
+
+        BenchmarkSession(VaadinService service) {
+            super(service);
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+    }
+
+    static class BenchmarkUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+}
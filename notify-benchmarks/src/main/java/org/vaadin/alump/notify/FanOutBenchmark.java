@@ -0,0 +1,103 @@
+/**
+ * FanOutBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcasting one notification to many UIs with NotifyBroadcaster, from call until every UI has it queued. Outgoing
+ * notifications are flushed after each broadcast, outside of measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"100", "1000"})
+    public int uiCount;
+
+    @Param({"1", "10"})
+    public int uisPerSession;
+
+    private final List<UI> uis = new ArrayList<>();
+    private NotifyBroadcaster broadcaster;
+    private NotifyItem item;
+
+    @Setup
+    public void setup() {
+        VaadinService service = BenchmarkEnvironment.createService();
+        VaadinSession session = null;
+        for(int i = 0; i < uiCount; ++i) {
+            if(i % uisPerSession == 0) {
+                session = BenchmarkEnvironment.createSession(service);
+            }
+            uis.add(BenchmarkEnvironment.createNotifyUI(session));
+        }
+        broadcaster = new NotifyBroadcaster();
+        item = new NotifyItem().setTitle("Broadcast").setBody("Sent to every UI");
+    }
+
+    @TearDown
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @TearDown(Level.Invocation)
+    public void flush() {
+        for(UI ui : uis) {
+            VaadinSession session = ui.getSession();
+            session.lock();
+            try {
+                BenchmarkEnvironment.flush(Notify.getInstance(ui));
+            } finally {
+                session.unlock();
+            }
+        }
+    }
+
+    @Benchmark
+    public NotifyBroadcast broadcast() throws InterruptedException {
+        NotifyBroadcast broadcast = broadcaster.broadcast(uis, item);
+        if(!broadcast.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Broadcast did not complete");
+        }
+        return broadcast;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * GetInstanceBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.AbstractExtension;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving Notify extension of UI with registry lookup, compared to scanning UI's extensions as done before the
+ * registry. UI has given amount of other extensions added before Notify.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetInstanceBenchmark {
+
+    @Param({"0", "8"})
+    public int otherExtensions;
+
+    @Param({"1", "1000"})
+    public int liveUIs;
+
+    private UI ui;
+
+    @Setup
+    public void setup() {
+        VaadinSession session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createService());
+        List<UI> uis = new ArrayList<>();
+        for(int i = 0; i < liveUIs; ++i) {
+            uis.add(BenchmarkEnvironment.createUI(session));
+        }
+        session.lock();
+        try {
+            for(UI target : uis) {
+                for(int i = 0; i < otherExtensions; ++i) {
+                    new OtherExtension().extend(target);
+                }
+                Notify.getInstance(target);
+            }
+        } finally {
+            session.unlock();
+        }
+        ui = uis.get(uis.size() / 2);
+    }
+
+    @Benchmark
+    public Notify registry() {
+        return Notify.getInstance(ui);
+    }
+
+    @Benchmark
+    public Notify scan() {
+        return ui.getExtensions().stream().filter(e -> e instanceof Notify).findFirst().map(e -> (Notify) e)
+                .orElse(null);
+    }
+
+    public static class OtherExtension extends AbstractExtension {
+        public void extend(UI ui) {
+            super.extend(ui);
+        }
+    }
+}
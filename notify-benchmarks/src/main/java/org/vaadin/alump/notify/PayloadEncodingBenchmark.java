@@ -0,0 +1,101 @@
+/**
+ * PayloadEncodingBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.VaadinSession;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.impl.JsonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per recipient cost of turning notification into JSON written to response, for mutable and frozen notifications
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    private static final String BODY = "Build 1432 of the release branch has finished and all 2817 tests passed. "
+            + "Artifacts have been published to the staging repository and are waiting for \"approval\".";
+
+    private VaadinSession session;
+    private Notify notify;
+    private NotifyItem mutable;
+    private NotifyItem frozen;
+
+    @Setup
+    public void setup() {
+        session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createService());
+        notify = Notify.getInstance(BenchmarkEnvironment.createNotifyUI(session));
+        session.lock();
+        mutable = new NotifyItem().setTitle("Release build finished").setBody(BODY).setTimeoutMs(10000)
+                .setClickListener(e -> {});
+        frozen = mutable.freeze();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.unlock();
+    }
+
+    @Benchmark
+    public String mutable() {
+        return encode(mutable);
+    }
+
+    @Benchmark
+    public String frozen() {
+        return encode(frozen);
+    }
+
+    /**
+     * Show notification and write its invocation as ClientRpcWriter does
+     */
+    private String encode(NotifyItem item) {
+        notify.instanceShow(item);
+        notify.beforeClientResponse(false);
+        JsonArray calls = Json.createArray();
+        for(ClientMethodInvocation invocation : notify.retrievePendingRpcCalls()) {
+            JsonArray params = Json.createArray();
+            for(int i = 0; i < invocation.getParameterTypes().length; ++i) {
+                params.set(i, JsonCodec.encode(invocation.getParameters()[i], null,
+                        invocation.getParameterTypes()[i], null).getEncodedValue());
+            }
+            calls.set(calls.length(), params);
+        }
+        return JsonUtil.stringify(calls);
+    }
+}
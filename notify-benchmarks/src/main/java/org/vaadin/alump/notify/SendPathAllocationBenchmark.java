@@ -0,0 +1,125 @@
+/**
+ * SendPathAllocationBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.ThemeResource;
+import com.vaadin.server.VaadinSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.vaadin.alump.notify.client.share.SharedNotification;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes allocated per notification on send path. Run main method to check allocation stays within limits, it exits
+ * with error if send path starts to allocate more than the SharedNotification sent to client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendPathAllocationBenchmark {
+
+    private static final int BATCH = 64;
+
+    // SharedNotification is 64 bytes with compressed references, notifications that expire are sent encoded and do
+    // not grow it
+    private static final double GENERATE_LIMIT_BYTES = 64;
+    // Flush of the batch (RPC invocation and list sent) is shared by notifications of the batch
+    private static final double SHOW_LIMIT_BYTES = 96;
+    // Allocation of benchmark harness spread over operations, a fraction of a byte per operation
+    private static final double NOISE_BYTES = 0.5;
+
+    private VaadinSession session;
+    private Notify notify;
+    private NotifyItem item;
+
+    @Setup
+    public void setup() {
+        session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createService());
+        notify = Notify.getInstance(BenchmarkEnvironment.createNotifyUI(session));
+        session.lock();
+        item = new NotifyItem().setTitle("Title").setBody("Body of the notification").setTimeoutMs(5000)
+                .setIcon(new ThemeResource("images/icon.png"))
+                .setClickListener(e -> {});
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.unlock();
+    }
+
+    @Benchmark
+    public SharedNotification generate() {
+        return notify.generateSharedNotification(item);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void show() {
+        for(int i = 0; i < BATCH; ++i) {
+            notify.instanceShow(item);
+        }
+        BenchmarkEnvironment.flush(notify);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SendPathAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        boolean failed = false;
+        for(RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            double limit = benchmark.endsWith(".generate") ? GENERATE_LIMIT_BYTES : SHOW_LIMIT_BYTES;
+            Result<?> allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            if(allocated == null) {
+                System.err.println("No allocation result for " + benchmark);
+                failed = true;
+            } else if(allocated.getScore() > limit + NOISE_BYTES) {
+                System.err.println(benchmark + " allocates " + allocated.getScore() + " bytes/op, limit is " + limit);
+                failed = true;
+            }
+        }
+        if(failed) {
+            System.exit(1);
+        }
+    }
+}
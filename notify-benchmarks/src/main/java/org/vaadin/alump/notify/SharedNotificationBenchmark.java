@@ -0,0 +1,80 @@
+/**
+ * SharedNotificationBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.ThemeResource;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vaadin.alump.notify.client.share.SharedNotification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting NotifyItem to the object sent to client
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedNotificationBenchmark {
+
+    private VaadinSession session;
+    private Notify notify;
+    private NotifyItem plain;
+    private NotifyItem withIcon;
+
+    @Setup
+    public void setup() {
+        session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createService());
+        UI ui = BenchmarkEnvironment.createNotifyUI(session);
+        // Held for the whole trial, as in request handling
+        session.lock();
+        notify = Notify.getInstance(ui);
+        plain = new NotifyItem().setTitle("Title").setBody("Body of the notification").setTimeout(5);
+        withIcon = new NotifyItem().setTitle("Title").setBody("Body of the notification")
+                .setIcon(new ThemeResource("images/icon.png"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.unlock();
+    }
+
+    @Benchmark
+    public SharedNotification plain() {
+        return notify.generateSharedNotification(plain);
+    }
+
+    @Benchmark
+    public SharedNotification withIcon() {
+        return notify.generateSharedNotification(withIcon);
+    }
+}
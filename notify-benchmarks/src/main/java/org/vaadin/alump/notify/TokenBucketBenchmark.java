@@ -0,0 +1,66 @@
+package org.vaadin.alump.notify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taking tokens from a global rate limit shared by many producer threads. Compares the compare-and-set bucket to a
+ * bucket guarded by a monitor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class TokenBucketBenchmark {
+
+    // Rate is high enough that most attempts succeed, so the update path is measured
+    private final TokenBucket bucket = new TokenBucket(1e9, 1000);
+    private final SynchronizedBucket synchronizedBucket = new SynchronizedBucket(1e9, 1000);
+
+    @Benchmark
+    public boolean lockFree() {
+        return bucket.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean synchronizedBaseline() {
+        return synchronizedBucket.tryAcquire();
+    }
+
+    private static class SynchronizedBucket {
+        private final double permitsPerNano;
+        private final double burst;
+        private double tokens;
+        private long updated = System.nanoTime();
+
+        private SynchronizedBucket(double permitsPerSecond, int burst) {
+            permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            tokens = burst;
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - updated) * permitsPerNano);
+            updated = now;
+            if(tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * VibratePatternBenchmark.java (Notify)
+ *
+ * Copyright 2017 Vaadin Ltd, Sami Viitanen <sami.viitanen@vaadin.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.vaadin.alump.notify;
+
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building vibrate patterns and requesting them on UI
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VibratePatternBenchmark {
+
+    private VaadinSession session;
+    private UI ui;
+    private Vibrate vibrate;
+    private Vibrate.Pattern pattern;
+
+    @Setup
+    public void setup() {
+        session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createService());
+        ui = BenchmarkEnvironment.createUI(session);
+        session.lock();
+        vibrate = Vibrate.get(ui);
+        pattern = buildPattern();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.unlock();
+    }
+
+    @Benchmark
+    public Vibrate.Pattern build() {
+        return buildPattern();
+    }
+
+    @Benchmark
+    public void request() {
+        Vibrate.vibrate(ui, pattern);
+        vibrate.retrievePendingRpcCalls();
+    }
+
+    private static Vibrate.Pattern buildPattern() {
+        return Vibrate.createPattern().vibrate(200).delay(100).vibrate(200).delay(100).vibrate(400).delay(200)
+                .vibrate(100).delay(50);
+    }
+}
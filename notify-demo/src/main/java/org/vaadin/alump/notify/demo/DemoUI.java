@@ -35,6 +35,7 @@ import org.vaadin.alump.notify.client.share.NotifyState;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Theme("demo")
@@ -248,22 +249,10 @@ public class DemoUI extends UI implements NotifyStateListener
     }
 
     private void showEditorWithDelay(Button.ClickEvent event) {
-        final String titleValue = title.getValue();
-        final String bodyValue = body.getValue();
-        final Resource iconValue = icon.getValue();
-
-        Thread delayThread = new Thread(() -> {
-            try {
-                Thread.sleep(DELAY_SECONDS * 1000);
-            } catch (InterruptedException e) {
-                return;
-            }
-
-            if(DemoUI.this.isAttached()) {
-                Notify.show(DemoUI.this, titleValue, bodyValue, iconValue);
-            }
-        });
-        delayThread.start();
+        NotifyScheduler.getDefault().showAfter(this, new NotifyItem()
+                .setTitle(title.getValue())
+                .setBody(body.getValue())
+                .setIcon(icon.getValue()), DELAY_SECONDS, TimeUnit.SECONDS);
     }
 
     private void showIt() {
@@ -303,20 +292,10 @@ public class DemoUI extends UI implements NotifyStateListener
     }
 
     private void showItDelayed() {
-        Thread delayThread = new Thread(() -> {
-            try {
-                Thread.sleep(DELAY_SECONDS * 1000);
-            } catch (InterruptedException e) {
-                return;
-            }
-
-            if(DemoUI.this.isAttached()) {
-                Notify.show(DemoUI.this, "Delayed example #" + delayedCounter.incrementAndGet(),
-                        "I was delayed for " + DELAY_SECONDS + " seconds",
-                        new ThemeResource("images/cat.jpg"));
-            }
-        });
-        delayThread.start();
+        NotifyScheduler.getDefault().showAfter(this, new NotifyItem()
+                .setTitle("Delayed example #" + delayedCounter.incrementAndGet())
+                .setBody("I was delayed for " + DELAY_SECONDS + " seconds")
+                .setIcon(new ThemeResource("images/cat.jpg")), DELAY_SECONDS, TimeUnit.SECONDS);
     }
 
     @Override